@@ -4,10 +4,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
 @Configuration
 public class S3Config {
@@ -19,28 +23,58 @@ public class S3Config {
     private String region;
     @Value("${aws.s3.aws_session_token}")
     private String sessionToken;
+    @Value("${aws.s3.transfer.part-size-mb:16}")
+    private long partSizeMb;
+    @Value("${aws.s3.transfer.max-concurrency:32}")
+    private int maxConcurrency;
+    @Value("${aws.s3.transfer.target-throughput-gbps:5.0}")
+    private double targetThroughputGbps;
 
     @Bean
     public S3Client s3Client() {
-        if (sessionToken != null && !sessionToken.isEmpty()) {
-            AwsSessionCredentials credentials = AwsSessionCredentials.create(
-                    accessKey,
-                    secretKey,
-                    sessionToken
-            );
+        return S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider())
+                .build();
+    }
 
-            return S3Client.builder()
-                    .region(Region.of(region))
-                    .credentialsProvider(StaticCredentialsProvider.create(credentials))
-                    .build();
-        }
-        else {
-            AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
+    /**
+     * Ký URL để client tải/upload trực tiếp với S3, không gọi mạng.
+     */
+    @Bean
+    public S3Presigner s3Presigner() {
+        return S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider())
+                .build();
+    }
+
+    /**
+     * Client bất đồng bộ trên CRT: multipart upload và ranged download song song chạy trên event loop native,
+     * không chiếm một platform thread cho mỗi part/transfer.
+     */
+    @Bean
+    public S3AsyncClient s3AsyncClient() {
+        return S3AsyncClient.crtBuilder()
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider())
+                .minimumPartSizeInBytes(partSizeMb * 1024 * 1024)
+                .maxConcurrency(maxConcurrency)
+                .targetThroughputInGbps(targetThroughputGbps)
+                .build();
+    }
+
+    @Bean
+    public S3TransferManager s3TransferManager(S3AsyncClient s3AsyncClient) {
+        return S3TransferManager.builder()
+                .s3Client(s3AsyncClient)
+                .build();
+    }
 
-            return S3Client.builder()
-                    .region(Region.of(region))
-                    .credentialsProvider(StaticCredentialsProvider.create(credentials))
-                    .build();
-        }
+    private StaticCredentialsProvider credentialsProvider() {
+        AwsCredentials credentials = sessionToken != null && !sessionToken.isEmpty()
+                ? AwsSessionCredentials.create(accessKey, secretKey, sessionToken)
+                : AwsBasicCredentials.create(accessKey, secretKey);
+        return StaticCredentialsProvider.create(credentials);
     }
 }
@@ -1,15 +1,26 @@
 package com.cloud_computing.mariadb.controller;
 
+import com.cloud_computing.mariadb.dto.BackupDownload;
 import com.cloud_computing.mariadb.dto.response.APIResponse;
 import com.cloud_computing.mariadb.dto.response.APIResponseMessage;
+import com.cloud_computing.mariadb.entity.enums.BackupCompression;
+import com.cloud_computing.mariadb.entity.enums.BackupFormat;
 import com.cloud_computing.mariadb.service.BackupService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
@@ -17,13 +28,17 @@ import org.springframework.web.bind.annotation.*;
 public class BackupController {
     private final BackupService backupService;
     @PostMapping
-    public ResponseEntity<?> createBackup(@PathVariable Long dbId, @RequestParam(required = false) String description) {
+    public ResponseEntity<?> createBackup(@PathVariable Long dbId,
+                                          @RequestParam(required = false) String description,
+                                          @RequestParam(required = false) BackupCompression compression,
+                                          @RequestParam(required = false) Integer level,
+                                          @RequestParam(required = false) BackupFormat format) {
         APIResponse apiResponse = APIResponse.builder()
-                .code(HttpStatus.CREATED.value())
-                .message(APIResponseMessage.SUCCESSFULLY_CREATED.getMessage())
-                .data(backupService.createBackup(dbId, description))
+                .code(HttpStatus.ACCEPTED.value())
+                .message(APIResponseMessage.SUCCESSFULLY_ACCEPTED.getMessage())
+                .data(backupService.createBackup(dbId, description, compression, level, format))
                 .build();
-        return new ResponseEntity<>(apiResponse, HttpStatus.CREATED);
+        return new ResponseEntity<>(apiResponse, HttpStatus.ACCEPTED);
     }
 
     @GetMapping
@@ -38,15 +53,80 @@ public class BackupController {
         return new ResponseEntity<>(apiResponse, HttpStatus.OK);
     }
 
+    /**
+     * Hỗ trợ Range một khoảng (206) để tải tiếp khi bị ngắt; If-Range khác ETag thì trả toàn bộ file.
+     * Header Digest (chỉ backup SQL) chứa SHA-256 của toàn bộ file để kiểm tra sau khi tải xong;
+     * backup nhiều object được server kiểm tra SHA-256 từng part khi gửi, part hỏng thì ngắt response.
+     */
     @GetMapping("/{backupId}/download")
-    public ResponseEntity<?> downloadBackup(@PathVariable Long backupId) {
-        Resource resource = backupService.downloadBackup(backupId);
+    public ResponseEntity<StreamingResponseBody> downloadBackup(@PathVariable Long backupId,
+                                                                @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                                                @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        BackupDownload download = backupService.downloadBackup(backupId);
+        long length = download.getLength();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(download.getETag());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (download.getSha256() != null) {
+            headers.set("Digest", "sha-256=" + Base64.getEncoder().encodeToString(HexFormat.of().parseHex(download.getSha256())));
+        }
+        if (download.getETag().equals(ifNoneMatch)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(download.getFileName(), StandardCharsets.UTF_8)
+                .build());
+        headers.setContentType(MediaType.parseMediaType(download.getContentType()));
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + "backup" + "\"")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(resource);
+        // Range sai cú pháp hoặc nhiều khoảng: bỏ qua và trả toàn bộ file
+        List<HttpRange> ranges = List.of();
+        if (range != null && (ifRange == null || ifRange.equals(download.getETag()))) {
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        if (ranges.size() == 1) {
+            HttpRange requested = ranges.get(0);
+            start = requested.getRangeStart(length);
+            if (start >= length) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+            end = requested.getRangeEnd(length);
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            status = HttpStatus.PARTIAL_CONTENT;
+        }
+        headers.setContentLength(end - start + 1);
+
+        long from = start;
+        long to = end;
+        StreamingResponseBody body = outputStream -> {
+            if (to < from) {
+                return;
+            }
+            try (InputStream in = download.open(from, to)) {
+                in.transferTo(outputStream);
+            }
+        };
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    /**
+     * URL ký sẵn, ngắn hạn để tải backup thẳng từ S3 thay vì qua server.
+     */
+    @GetMapping("/{backupId}/download-url")
+    public ResponseEntity<?> getDownloadUrl(@PathVariable Long backupId, @PathVariable Long dbId) {
+        return new ResponseEntity<>(APIResponse.builder()
+                .code(HttpStatus.OK.value())
+                .message(APIResponseMessage.SUCCESSFULLY_RETRIEVED.getMessage())
+                .data(backupService.getDownloadUrl(dbId, backupId))
+                .build(), HttpStatus.OK);
     }
 
     @DeleteMapping("/{backupId}")
@@ -59,12 +139,23 @@ public class BackupController {
     }
 
     @PostMapping("/{backupId}")
-    public ResponseEntity<?> restoreBackup(@PathVariable Long backupId, @PathVariable Long dbId) {
-        backupService.restoreBackup(dbId, backupId);
+    public ResponseEntity<?> restoreBackup(@PathVariable Long backupId, @PathVariable Long dbId,
+                                           @RequestParam(defaultValue = "false") boolean binlog) {
         return new ResponseEntity<>(APIResponse.builder()
-                .code(HttpStatus.OK.value())
-                .message(APIResponseMessage.SUCCESSFULLY_UPDATED.getMessage())
-                .build(), HttpStatus.OK);
+                .code(HttpStatus.ACCEPTED.value())
+                .message(APIResponseMessage.SUCCESSFULLY_ACCEPTED.getMessage())
+                .data(backupService.restoreBackup(dbId, backupId, binlog))
+                .build(), HttpStatus.ACCEPTED);
     }
 
+    @PostMapping("/{backupId}/clone")
+    public ResponseEntity<?> restoreToNewDb(@PathVariable Long backupId, @PathVariable Long dbId,
+                                            @RequestParam(required = false) String name,
+                                            @RequestParam(defaultValue = "false") boolean swap) {
+        return new ResponseEntity<>(APIResponse.builder()
+                .code(HttpStatus.ACCEPTED.value())
+                .message(APIResponseMessage.SUCCESSFULLY_ACCEPTED.getMessage())
+                .data(backupService.restoreToNewDb(dbId, backupId, name, swap))
+                .build(), HttpStatus.ACCEPTED);
+    }
 }
@@ -0,0 +1,46 @@
+package com.cloud_computing.mariadb.controller;
+
+import com.cloud_computing.mariadb.dto.request.BackupScheduleRequest;
+import com.cloud_computing.mariadb.dto.response.APIResponse;
+import com.cloud_computing.mariadb.dto.response.APIResponseMessage;
+import com.cloud_computing.mariadb.service.BackupScheduleService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/dbs/{dbId}/backup-schedule")
+public class BackupScheduleController {
+    private final BackupScheduleService backupScheduleService;
+
+    @GetMapping
+    public ResponseEntity<?> getSchedule(@PathVariable Long dbId) {
+        APIResponse apiResponse = APIResponse.builder()
+                .code(HttpStatus.OK.value())
+                .message(APIResponseMessage.SUCCESSFULLY_RETRIEVED.getMessage())
+                .data(backupScheduleService.getSchedule(dbId))
+                .build();
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @PutMapping
+    public ResponseEntity<?> saveSchedule(@PathVariable Long dbId, @RequestBody BackupScheduleRequest request) {
+        APIResponse apiResponse = APIResponse.builder()
+                .code(HttpStatus.OK.value())
+                .message(APIResponseMessage.SUCCESSFULLY_UPDATED.getMessage())
+                .data(backupScheduleService.saveSchedule(dbId, request))
+                .build();
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> deleteSchedule(@PathVariable Long dbId) {
+        backupScheduleService.deleteSchedule(dbId);
+        return new ResponseEntity<>(APIResponse.builder()
+                .code(HttpStatus.NO_CONTENT.value())
+                .message(APIResponseMessage.SUCCESSFULLY_DELETED.getMessage())
+                .build(), HttpStatus.NO_CONTENT);
+    }
+}
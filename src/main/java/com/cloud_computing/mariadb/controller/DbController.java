@@ -19,6 +19,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Instant;
+
 @RestController
 @RequestMapping("/api/dbs")
 @RequiredArgsConstructor()
@@ -135,15 +137,51 @@ public class DbController {
         return new ResponseEntity<>(apiResponse, HttpStatus.OK);
     }
 
+    @PostMapping("/{dbId}/restore")
+    public ResponseEntity<?> restoreToPointInTime(@PathVariable Long dbId, @RequestParam Instant to) {
+        return new ResponseEntity<>(APIResponse.builder()
+                .code(HttpStatus.ACCEPTED.value())
+                .message(APIResponseMessage.SUCCESSFULLY_ACCEPTED.getMessage())
+                .data(backupService.restoreToPointInTime(dbId, to))
+                .build(), HttpStatus.ACCEPTED);
+    }
+
     @PostMapping("/{dbId}/import")
     public ResponseEntity<?> importSqlDump(
             @PathVariable Long dbId,
             @RequestParam("file") MultipartFile file) {
 
-        backupService.importSqlDump(dbId, file);
-        return ResponseEntity.ok(APIResponse.<Void>builder()
-                .code(200)
-                .message("Import SQL dump thành công")
-                .build());
+        return new ResponseEntity<>(APIResponse.builder()
+                .code(HttpStatus.ACCEPTED.value())
+                .message(APIResponseMessage.SUCCESSFULLY_ACCEPTED.getMessage())
+                .data(backupService.importSqlDump(dbId, file))
+                .build(), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Bắt đầu upload file import thẳng lên S3 (presigned multipart upload), không giới hạn bởi request tới server.
+     */
+    @PostMapping("/{dbId}/import/uploads")
+    public ResponseEntity<?> startImportUpload(@PathVariable Long dbId,
+                                               @RequestParam String fileName,
+                                               @RequestParam Long size) {
+        return new ResponseEntity<>(APIResponse.builder()
+                .code(HttpStatus.CREATED.value())
+                .message(APIResponseMessage.SUCCESSFULLY_CREATED.getMessage())
+                .data(backupService.startImportUpload(dbId, fileName, size))
+                .build(), HttpStatus.CREATED);
+    }
+
+    /**
+     * Client đã upload xong mọi phần: hoàn tất multipart upload và bắt đầu job import.
+     * Hủy upload bằng POST /api/dbs/{dbId}/jobs/{jobId}/cancel.
+     */
+    @PostMapping("/{dbId}/import/uploads/{jobId}/complete")
+    public ResponseEntity<?> completeImportUpload(@PathVariable Long dbId, @PathVariable Long jobId) {
+        return new ResponseEntity<>(APIResponse.builder()
+                .code(HttpStatus.ACCEPTED.value())
+                .message(APIResponseMessage.SUCCESSFULLY_ACCEPTED.getMessage())
+                .data(backupService.completeImportUpload(dbId, jobId))
+                .build(), HttpStatus.ACCEPTED);
     }
 }
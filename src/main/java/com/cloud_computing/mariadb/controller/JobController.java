@@ -0,0 +1,48 @@
+package com.cloud_computing.mariadb.controller;
+
+import com.cloud_computing.mariadb.dto.response.APIResponse;
+import com.cloud_computing.mariadb.dto.response.APIResponseMessage;
+import com.cloud_computing.mariadb.service.BackupJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/dbs/{dbId}/jobs")
+public class JobController {
+    private final BackupJobService backupJobService;
+
+    @GetMapping
+    public ResponseEntity<?> getJobs(@PathVariable Long dbId,
+                                     @RequestParam(defaultValue = "0") int page,
+                                     @RequestParam(defaultValue = "20") int size) {
+        APIResponse apiResponse = APIResponse.builder()
+                .code(HttpStatus.OK.value())
+                .message(APIResponseMessage.SUCCESSFULLY_RETRIEVED.getMessage())
+                .data(backupJobService.getJobs(dbId, page, size))
+                .build();
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable Long dbId, @PathVariable Long jobId) {
+        APIResponse apiResponse = APIResponse.builder()
+                .code(HttpStatus.OK.value())
+                .message(APIResponseMessage.SUCCESSFULLY_RETRIEVED.getMessage())
+                .data(backupJobService.getJob(dbId, jobId))
+                .build();
+        return new ResponseEntity<>(apiResponse, HttpStatus.OK);
+    }
+
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable Long dbId, @PathVariable Long jobId) {
+        APIResponse apiResponse = APIResponse.builder()
+                .code(HttpStatus.ACCEPTED.value())
+                .message(APIResponseMessage.SUCCESSFULLY_CANCELLED.getMessage())
+                .data(backupJobService.cancelJob(dbId, jobId))
+                .build();
+        return new ResponseEntity<>(apiResponse, HttpStatus.ACCEPTED);
+    }
+}
@@ -1,20 +1,31 @@
 package com.cloud_computing.mariadb.controller;
 
+import com.cloud_computing.mariadb.dto.BulkImportDTO;
 import com.cloud_computing.mariadb.dto.RowDTO;
+import com.cloud_computing.mariadb.dto.RowWriteResultDTO;
 import com.cloud_computing.mariadb.dto.TableDataDTO;
+import com.cloud_computing.mariadb.dto.request.BulkImportRequest;
 import com.cloud_computing.mariadb.dto.request.TableAlterRequest;
 import com.cloud_computing.mariadb.dto.request.TableCreateRequest;
 import com.cloud_computing.mariadb.dto.response.APIResponse;
 import com.cloud_computing.mariadb.dto.response.APIResponseMessage;
+import com.cloud_computing.mariadb.entity.enums.RowCountStrategy;
+import com.cloud_computing.mariadb.exception.BadRequestException;
 import com.cloud_computing.mariadb.service.TableService;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +36,9 @@ import java.util.Map;
 public class TableController {
     final TableService tableService;
 
+    @Value("${table.row-count.default-strategy:CACHED}")
+    RowCountStrategy defaultCountStrategy;
+
     @PostMapping
     public ResponseEntity<?> createTable(@PathVariable Long dbId, @Valid @RequestBody TableCreateRequest dto) {
         tableService.createTable(dbId, dto);
@@ -88,11 +102,19 @@ public class TableController {
     public ResponseEntity<?> getTableData(@PathVariable Long dbId,
                                       @PathVariable String tableName,
                                       @RequestParam(defaultValue = "0") int page,
-                                      @RequestParam(defaultValue = "20") int size) {
+                                      @RequestParam(defaultValue = "20") int size,
+                                      @RequestParam(defaultValue = "offset") String mode,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "asc") String sort,
+                                      @RequestParam(required = false) String count) {
+        RowCountStrategy countStrategy = parseCountStrategy(count);
+        TableDataDTO data = "keyset".equalsIgnoreCase(mode) || cursor != null
+                ? tableService.getTableDataByCursor(dbId, tableName, cursor, size, "desc".equalsIgnoreCase(sort), countStrategy)
+                : tableService.getTableData(dbId, tableName, page, size, countStrategy);
         return ResponseEntity.ok(APIResponse.<TableDataDTO>builder()
                 .code(HttpStatus.OK.value())
                 .message("Lấy dữ liệu bảng thành công")
-                .data(tableService.getTableData(dbId, tableName, page, size))
+                .data(data)
                 .build());
     }
 
@@ -101,10 +123,10 @@ public class TableController {
             @PathVariable Long dbId,
             @PathVariable String tableName,
             @Valid @RequestBody RowDTO request) {
-        tableService.insertRow(dbId, tableName, request);
-        return ResponseEntity.ok(APIResponse.<Void>builder()
+        return ResponseEntity.ok(APIResponse.<RowWriteResultDTO>builder()
                 .code(HttpStatus.CREATED.value())
                 .message(APIResponseMessage.SUCCESSFULLY_CREATED.getMessage())
+                .data(tableService.insertRow(dbId, tableName, request))
                 .build());
     }
 
@@ -113,10 +135,10 @@ public class TableController {
             @PathVariable Long dbId,
             @PathVariable String tableName,
             @Valid @RequestBody RowDTO request) {
-        tableService.updateRow(dbId, tableName, request);
-        return ResponseEntity.ok(APIResponse.<Void>builder()
+        return ResponseEntity.ok(APIResponse.<RowWriteResultDTO>builder()
                 .code(HttpStatus.OK.value())
                 .message(APIResponseMessage.SUCCESSFULLY_UPDATED.getMessage())
+                .data(tableService.updateRow(dbId, tableName, request))
                 .build());
     }
     @DeleteMapping("/{tableName}/rows")
@@ -124,10 +146,10 @@ public class TableController {
             @PathVariable Long dbId,
             @PathVariable String tableName,
             @RequestBody RowDTO request) {
-        tableService.deleteRow(dbId, tableName, request);
-        return ResponseEntity.ok(APIResponse.<Void>builder()
+        return ResponseEntity.ok(APIResponse.<RowWriteResultDTO>builder()
                 .code(HttpStatus.OK.value())
                 .message(APIResponseMessage.SUCCESSFULLY_DELETED.getMessage())
+                .data(tableService.deleteRow(dbId, tableName, request))
                 .build());
     }
 
@@ -140,4 +162,52 @@ public class TableController {
                 .data(tableService.getTableColumns(dbId, tableName))
                 .build());
     }
+
+    @GetMapping("/{tableName}/export")
+    public ResponseEntity<StreamingResponseBody> exportTable(@PathVariable Long dbId,
+                                                             @PathVariable String tableName,
+                                                             @RequestParam(defaultValue = "csv") String format,
+                                                             @RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody body = tableService.exportTable(dbId, tableName, format, gzip);
+        String extension = format.toLowerCase();
+        MediaType contentType = "csv".equals(extension)
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        if (gzip) {
+            extension += ".gz";
+            contentType = new MediaType("application", "gzip");
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + tableName + "." + extension + "\"")
+                .contentType(contentType)
+                .body(body);
+    }
+
+    /**
+     * Body là nội dung file CSV/TSV (không phải multipart) để stream thẳng vào LOAD DATA LOCAL INFILE.
+     */
+    @PostMapping(value = "/{tableName}/import", consumes = {"text/csv", "text/tab-separated-values",
+            MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> bulkImport(@PathVariable Long dbId,
+                                        @PathVariable String tableName,
+                                        @ModelAttribute BulkImportRequest options,
+                                        InputStream data) {
+        return ResponseEntity.ok(APIResponse.<BulkImportDTO>builder()
+                .code(HttpStatus.OK.value())
+                .message("Import dữ liệu thành công")
+                .data(tableService.bulkImport(dbId, tableName, options, data))
+                .build());
+    }
+
+    private RowCountStrategy parseCountStrategy(String count) {
+        if (count == null || count.isBlank()) {
+            return defaultCountStrategy;
+        }
+        try {
+            return RowCountStrategy.valueOf(count.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Kiểu đếm không hợp lệ: " + count);
+        }
+    }
 }
@@ -20,6 +20,11 @@ public class BackupDTO {
     String dbName;
     String fileName;
     Long fileSize;
+    String compression;
+    Long uncompressedSize;
+    String sha256;
+    String format;
+    String binlogGtid;
     String description;
     Instant createdAt;
 }
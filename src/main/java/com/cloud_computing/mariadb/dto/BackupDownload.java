@@ -0,0 +1,36 @@
+package com.cloud_computing.mariadb.dto;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * File backup để download: đúng các byte đang lưu trên S3 (đã nén), các phần của backup CHUNKED/DEDUP
+ * được ghép liền nhau (frame zstd/gzip ghép lại vẫn giải nén được như một file).
+ */
+@Getter
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BackupDownload {
+    String fileName;
+    String contentType;
+    long length;
+    // ETag mạnh: backup không thay đổi sau khi tạo
+    String eTag;
+    // SHA-256 (hex) của toàn bộ file, chỉ có với backup SQL
+    String sha256;
+    RangeOpener opener;
+
+    @FunctionalInterface
+    public interface RangeOpener {
+        InputStream open(long start, long endInclusive) throws IOException;
+    }
+
+    public InputStream open(long start, long endInclusive) throws IOException {
+        return opener.open(start, endInclusive);
+    }
+}
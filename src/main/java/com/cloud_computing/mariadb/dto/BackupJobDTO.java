@@ -0,0 +1,38 @@
+package com.cloud_computing.mariadb.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BackupJobDTO {
+    Long id;
+    Long dbId;
+    Long userId;
+    String type;
+    String status;
+    String phase;
+    Long backupId;
+    Long bytesTotal;
+    Long bytesProcessed;
+    Long statementsExecuted;
+    Long statementsFailed;
+    // Ước lượng theo số byte đã xử lý, null khi chưa biết tổng
+    Double percent;
+    Long etaSeconds;
+    String errorMessage;
+    // Tiến độ từng bảng khi restore CHUNKED (cả trong lúc đang chạy)
+    JsonNode tables;
+    JsonNode result;
+    Instant createdAt;
+    Instant startedAt;
+    Instant finishedAt;
+}
@@ -0,0 +1,29 @@
+package com.cloud_computing.mariadb.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BackupScheduleDTO {
+    Long id;
+    Long dbId;
+    Long userId;
+    String cron;
+    Boolean enabled;
+    Integer keepDaily;
+    Integer keepWeekly;
+    Integer keepMonthly;
+    String compression;
+    String format;
+    Instant lastRunAt;
+    Instant nextRunAt;
+    Instant createdAt;
+}
@@ -0,0 +1,23 @@
+package com.cloud_computing.mariadb.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkImportDTO {
+    String tableName;
+    Long rowsImported;
+    Long bytesRead;
+    Long elapsedMs;
+    Double rowsPerSecond;
+    Long warningCount;
+    List<String> warnings;
+}
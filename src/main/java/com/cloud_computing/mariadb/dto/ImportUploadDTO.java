@@ -0,0 +1,34 @@
+package com.cloud_computing.mariadb.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Multipart upload file import thẳng lên S3: client PUT từng phần {@code partSize} byte (phần cuối có thể nhỏ hơn)
+ * vào URL tương ứng, rồi gọi complete để bắt đầu import.
+ */
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportUploadDTO {
+    Long jobId;
+    Long size;
+    Long partSize;
+    Instant expiresAt;
+    List<Part> parts;
+
+    @Data
+    @Builder
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Part {
+        Integer partNumber;
+        String url;
+    }
+}
@@ -0,0 +1,40 @@
+package com.cloud_computing.mariadb.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * URL tải backup trực tiếp từ S3. Backup nhiều object (CHUNKED/DEDUP) gồm nhiều URL,
+ * nội dung các URL ghép theo thứ tự là file backup. {@code sha256} của file chỉ có với backup SQL,
+ * backup nhiều object được kiểm tra theo SHA-256 của từng part.
+ */
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PresignedDownloadDTO {
+    Long backupId;
+    String fileName;
+    Long fileSize;
+    String sha256;
+    Instant expiresAt;
+    List<Part> parts;
+
+    @Data
+    @Builder
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Part {
+        String url;
+        Long bytes;
+        // SHA-256 của object (các byte tải về), có với SQL và CHUNKED
+        String sha256;
+        // SHA-256 của nội dung sau khi giải nén, có với DEDUP
+        String contentSha256;
+    }
+}
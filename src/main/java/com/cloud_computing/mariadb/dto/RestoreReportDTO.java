@@ -0,0 +1,48 @@
+package com.cloud_computing.mariadb.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RestoreReportDTO {
+    Long backupId;
+    String format;
+    Integer threads;
+    Long elapsedMs;
+    Long statementsExecuted;
+    Long statementsFailed;
+    // Số segment binlog đã replay sau backup full
+    Integer binlogSegments;
+    // Restore point-in-time: thời điểm đích
+    Instant restoredTo;
+    // Restore vào database mới
+    Long targetDbId;
+    String targetDbName;
+    // Số bảng đã đổi với database gốc (RENAME TABLE)
+    Integer swappedTables;
+    List<String> errors;
+    List<TableProgress> tables;
+
+    @Data
+    @Builder
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class TableProgress {
+        String name;
+        Integer chunks;
+        Integer chunksDone;
+        Long rows;
+        Long rowsDone;
+        Integer deferredIndexes;
+        Long elapsedMs;
+    }
+}
@@ -14,5 +14,10 @@ import java.util.Map;
 public class RowDTO {
     @NotEmpty(message = "Dữ liệu không được để trống")
     List<Map<String, Object>> data;
-    List<Long> ids;
+    // Giá trị cột khóa (số hoặc chuỗi, theo kiểu của cột)
+    List<Object> ids;
+    // Cột khóa dùng với ids; mặc định là khóa chính một cột, sau đó là cột `id`
+    String keyColumn;
+    // Xóa nhiều chunk: true = một transaction, false = commit từng chunk (lỗi giữa chừng trả về phần đã xóa)
+    Boolean atomic;
 }
@@ -0,0 +1,24 @@
+package com.cloud_computing.mariadb.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RowWriteResultDTO {
+    Long affectedRows;
+    // Số dòng bị ảnh hưởng của từng statement/chunk đã chạy
+    List<Integer> chunkAffectedRows;
+    // Số dòng bị ảnh hưởng theo từng phần tử của request (update)
+    List<Integer> rowAffectedRows;
+    // Xóa không atomic bị lỗi giữa chừng: chỉ số chunk lỗi (từ 0) và lỗi, các chunk trước đó đã được commit
+    Integer failedChunk;
+    String error;
+}
@@ -18,8 +18,17 @@ public class TableDataDTO {
     List<String> columns;
     List<Map<String, Object>> rows;
     Long totalRows;
+    // true nếu totalRows là số ước lượng (information_schema.TABLES.TABLE_ROWS)
+    Boolean rowsEstimated;
     Long totalColumns;
+    Long dataLength;
+    Long indexLength;
+    String engine;
+    String collation;
     Integer page;
     Integer pageSize;
+    // Phân trang keyset: cursor cho trang tiếp theo, null nếu đã hết dữ liệu
+    String nextCursor;
+    Boolean hasMore;
 }
 
@@ -0,0 +1,22 @@
+package com.cloud_computing.mariadb.dto.request;
+
+import com.cloud_computing.mariadb.entity.enums.BackupCompression;
+import com.cloud_computing.mariadb.entity.enums.BackupFormat;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BackupScheduleRequest {
+    // Cron của Spring: giây phút giờ ngày tháng thứ, ví dụ "0 0 0 * * *" = 0h mỗi ngày
+    String cron;
+    boolean enabled = true;
+    // Số ngày/tuần/tháng gần nhất được giữ một backup, 0 = không giữ theo mức đó
+    int keepDaily = 7;
+    int keepWeekly = 4;
+    int keepMonthly = 12;
+    // Bỏ trống = dùng cấu hình mặc định
+    BackupCompression compression;
+    BackupFormat format;
+}
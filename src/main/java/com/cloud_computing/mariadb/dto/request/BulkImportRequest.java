@@ -0,0 +1,22 @@
+package com.cloud_computing.mariadb.dto.request;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkImportRequest {
+    // "csv" -> ',', "tsv" -> tab; delimiter nếu có sẽ ghi đè
+    String format = "csv";
+    String delimiter;
+    String enclosedBy = "\"";
+    boolean skipHeader = true;
+    boolean crlf = false;
+    // Bỏ qua dòng lỗi/trùng khóa thay vì dừng cả lệnh
+    boolean ignoreErrors = false;
+    // Cột đích theo thứ tự cột trong file; phần tử rỗng hoặc "-" = bỏ qua cột đó
+    List<String> columns;
+}
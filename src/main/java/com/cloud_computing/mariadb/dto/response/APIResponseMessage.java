@@ -9,7 +9,9 @@ public enum APIResponseMessage {
     SUCCESSFULLY_REGISTER("Đăng ký thành công."),
     SUCCESSFULLY_LOGOUT("Đăng xuất thành công."),
     SUCCESSFULLY_MAIL("Gửi mail thành công."),
-    SUCCESSFULLY_JOIN("Join database thành công.");
+    SUCCESSFULLY_JOIN("Join database thành công."),
+    SUCCESSFULLY_ACCEPTED("Đã tiếp nhận, đang xử lý."),
+    SUCCESSFULLY_CANCELLED("Đã gửi yêu cầu hủy.");
 
     final String message;
     APIResponseMessage(String message) {
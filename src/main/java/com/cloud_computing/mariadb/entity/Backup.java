@@ -47,6 +47,41 @@ public class Backup {
     @Column(name = "file_size")
     private Long fileSize;
 
+    // BackupCompression, null với backup cũ (không nén)
+    @Size(max = 10)
+    @Column(name = "compression", length = 10)
+    private String compression;
+
+    @Column(name = "uncompressed_size")
+    private Long uncompressedSize;
+
+    // SQL: SHA-256 (hex) của file download; CHUNKED/DEDUP: SHA-256 của SHA-256 các part/chunk theo thứ tự.
+    // null với backup cũ
+    @Size(max = 64)
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    // BackupFormat, null với backup cũ (mysqldump)
+    @Size(max = 10)
+    @Column(name = "format", length = 10)
+    private String format;
+
+    // Tạo bởi lịch backup, chỉ những backup này bị xóa theo chính sách giữ lại
+    @Column(name = "scheduled")
+    private Boolean scheduled;
+
+    // Vị trí binlog lúc snapshot (chỉ backup CHUNKED), điểm bắt đầu của các segment incremental
+    @Size(max = 255)
+    @Column(name = "binlog_file")
+    private String binlogFile;
+
+    @Column(name = "binlog_position")
+    private Long binlogPosition;
+
+    @Size(max = 255)
+    @Column(name = "binlog_gtid")
+    private String binlogGtid;
+
     @Lob
     @Column(name = "description")
     private String description;
@@ -0,0 +1,158 @@
+package com.cloud_computing.mariadb.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Job backup/restore/import chạy nền. Trạng thái và tiến độ được lưu lại để xem được sau khi server khởi động lại.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "backup_jobs")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BackupJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "db_id", nullable = false)
+    private Db db;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.SET_NULL)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    // Backup được tạo (BACKUP) hoặc được restore (RESTORE)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.SET_NULL)
+    @JoinColumn(name = "backup_id")
+    private Backup backup;
+
+    // Job RESTORE vào database mới: database đích, null = restore đè lên {@link #db}
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.SET_NULL)
+    @JoinColumn(name = "target_db_id")
+    private Db targetDb;
+
+    // BackupJobType
+    @Size(max = 20)
+    @NotNull
+    @Column(name = "type", nullable = false, length = 20)
+    private String type;
+
+    // BackupJobStatus
+    @Size(max = 20)
+    @NotNull
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Size(max = 50)
+    @Column(name = "phase", length = 50)
+    private String phase;
+
+    // Job do lịch backup tạo, dùng để giới hạn số backup theo lịch chạy cùng lúc
+    @Column(name = "scheduled")
+    private Boolean scheduled;
+
+    // Tham số của job BACKUP
+    @Lob
+    @Column(name = "description")
+    private String description;
+
+    @Size(max = 10)
+    @Column(name = "compression", length = 10)
+    private String compression;
+
+    @Column(name = "compression_level")
+    private Integer compressionLevel;
+
+    @Size(max = 10)
+    @Column(name = "format", length = 10)
+    private String format;
+
+    // Job RESTORE: replay các segment binlog sau backup full
+    @Column(name = "apply_binlog")
+    private Boolean applyBinlog;
+
+    // Job RESTORE point-in-time: dừng replay binlog tại thời điểm này
+    @Column(name = "restore_to")
+    private Instant restoreTo;
+
+    // Job RESTORE vào database mới: sau khi restore xong, đổi bảng với database gốc bằng RENAME TABLE
+    @Column(name = "swap")
+    private Boolean swap;
+
+    // File SQL của job IMPORT được lưu tạm trên S3 để job chạy được sau khi request kết thúc
+    @Size(max = 255)
+    @Column(name = "staging_key")
+    private String stagingKey;
+
+    // Multipart upload (presigned) của file import đang chờ client upload
+    @Size(max = 512)
+    @Column(name = "upload_id", length = 512)
+    private String uploadId;
+
+    @Column(name = "bytes_total")
+    private Long bytesTotal;
+
+    @Column(name = "bytes_processed")
+    private Long bytesProcessed;
+
+    @Column(name = "statements_executed")
+    private Long statementsExecuted;
+
+    @Column(name = "statements_failed")
+    private Long statementsFailed;
+
+    @Lob
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    // Tiến độ từng bảng (JSON) khi restore CHUNKED, cập nhật trong lúc job chạy
+    @Lob
+    @Column(name = "table_progress")
+    private String tables;
+
+    // Kết quả (JSON), ví dụ báo cáo restore
+    @Lob
+    @Column(name = "result")
+    private String result;
+
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    // Instance đang chạy job và lần cuối instance đó ghi tiến độ; heartbeat cũ nghĩa là instance đã dừng
+    @Size(max = 255)
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,84 @@
+package com.cloud_computing.mariadb.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Lịch backup tự động của một database (tối đa một lịch cho mỗi database)
+ * kèm chính sách giữ lại theo ngày/tuần/tháng.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "backup_schedules")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BackupSchedule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "db_id", nullable = false, unique = true)
+    private Db db;
+
+    // Người đặt lịch, backup theo lịch được ghi nhận cho user này
+    @ManyToOne(fetch = FetchType.LAZY)
+    @OnDelete(action = OnDeleteAction.SET_NULL)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    // Cron của Spring (6 trường, có giây), ví dụ "0 0 0 * * *"
+    @Size(max = 100)
+    @NotNull
+    @Column(name = "cron_expression", nullable = false, length = 100)
+    private String cronExpression;
+
+    @NotNull
+    @Column(name = "enabled", nullable = false)
+    private Boolean enabled;
+
+    @Column(name = "keep_daily")
+    private Integer keepDaily;
+
+    @Column(name = "keep_weekly")
+    private Integer keepWeekly;
+
+    @Column(name = "keep_monthly")
+    private Integer keepMonthly;
+
+    // null = dùng cấu hình mặc định
+    @Size(max = 10)
+    @Column(name = "compression", length = 10)
+    private String compression;
+
+    @Size(max = 10)
+    @Column(name = "format", length = 10)
+    private String format;
+
+    @Column(name = "last_run_at")
+    private Instant lastRunAt;
+
+    @Column(name = "next_run_at")
+    private Instant nextRunAt;
+
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,91 @@
+package com.cloud_computing.mariadb.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * Một đoạn binlog (output của mysqlbinlog, đã lọc theo database) nối tiếp backup full {@link #backup}.
+ * Các segment của cùng một backup liên tiếp nhau: start của segment sau = end của segment trước.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "binlog_segments")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BinlogSegment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "db_id", nullable = false)
+    private Db db;
+
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "backup_id", nullable = false)
+    private Backup backup;
+
+    @Size(max = 255)
+    @NotNull
+    @Column(name = "s3_key", nullable = false)
+    private String s3Key;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Size(max = 10)
+    @Column(name = "compression", length = 10)
+    private String compression;
+
+    @Size(max = 255)
+    @NotNull
+    @Column(name = "start_file", nullable = false)
+    private String startFile;
+
+    @NotNull
+    @Column(name = "start_position", nullable = false)
+    private Long startPosition;
+
+    @Size(max = 255)
+    @NotNull
+    @Column(name = "end_file", nullable = false)
+    private String endFile;
+
+    @NotNull
+    @Column(name = "end_position", nullable = false)
+    private Long endPosition;
+
+    @Size(max = 255)
+    @Column(name = "end_gtid")
+    private String endGtid;
+
+    // Khoảng thời gian segment bao phủ: từ lúc lấy vị trí bắt đầu tới lúc lấy vị trí kết thúc
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "ended_at")
+    private Instant endedAt;
+
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = Instant.now();
+    }
+}
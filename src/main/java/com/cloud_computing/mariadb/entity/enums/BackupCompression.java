@@ -0,0 +1,29 @@
+package com.cloud_computing.mariadb.entity.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum BackupCompression {
+    NONE(".sql", "application/sql", 0, 0),
+    GZIP(".sql.gz", "application/gzip", 1, 9),
+    ZSTD(".sql.zst", "application/zstd", 1, 22);
+
+    final String extension;
+    final String contentType;
+    final int minLevel;
+    final int maxLevel;
+
+    BackupCompression(String extension, String contentType, int minLevel, int maxLevel) {
+        this.extension = extension;
+        this.contentType = contentType;
+        this.minLevel = minLevel;
+        this.maxLevel = maxLevel;
+    }
+
+    /**
+     * Backup cũ không lưu codec -> coi như không nén.
+     */
+    public static BackupCompression of(String value) {
+        return value == null ? NONE : valueOf(value);
+    }
+}
@@ -0,0 +1,14 @@
+package com.cloud_computing.mariadb.entity.enums;
+
+public enum BackupFormat {
+    SQL,        // một file mysqldump duy nhất
+    CHUNKED,    // dump song song: manifest + schema + nhiều chunk dữ liệu
+    DEDUP;      // mysqldump cắt theo nội dung, chunk theo SHA-256 dùng chung giữa các backup + manifest
+
+    /**
+     * Backup cũ không lưu format -> là file mysqldump.
+     */
+    public static BackupFormat of(String value) {
+        return value == null ? SQL : valueOf(value);
+    }
+}
@@ -0,0 +1,14 @@
+package com.cloud_computing.mariadb.entity.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum BackupJobStatus {
+    // Job IMPORT chờ client upload file thẳng lên S3 (presigned multipart upload)
+    AWAITING_UPLOAD,
+    QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,10 @@
+package com.cloud_computing.mariadb.entity.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum BackupJobType {
+    BACKUP,     // tạo backup
+    RESTORE,    // restore backup vào database
+    IMPORT      // import file SQL người dùng upload
+}
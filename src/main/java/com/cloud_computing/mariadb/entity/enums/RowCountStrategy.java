@@ -0,0 +1,7 @@
+package com.cloud_computing.mariadb.entity.enums;
+
+public enum RowCountStrategy {
+    EXACT,      // SELECT COUNT(*) mỗi lần
+    ESTIMATE,   // information_schema.TABLES.TABLE_ROWS
+    CACHED      // COUNT(*) nhưng giữ kết quả trong cache theo TTL
+}
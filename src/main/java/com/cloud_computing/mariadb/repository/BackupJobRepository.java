@@ -0,0 +1,91 @@
+package com.cloud_computing.mariadb.repository;
+
+import com.cloud_computing.mariadb.entity.BackupJob;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface BackupJobRepository extends JpaRepository<BackupJob, Long> {
+    Page<BackupJob> findByDb_IdOrderByCreatedAtDesc(Long dbId, Pageable pageable);
+
+    Optional<BackupJob> findByIdAndDb_Id(Long id, Long dbId);
+
+    // Job chạy trên thread riêng, ngoài session JPA của request
+    @EntityGraph(attributePaths = {"db", "user", "backup", "targetDb"})
+    Optional<BackupJob> findWithDetailsById(Long id);
+
+    List<BackupJob> findByStatus(String status);
+
+    long countByScheduledTrueAndStatusIn(Collection<String> statuses);
+
+    boolean existsByDb_IdAndTypeAndStatusIn(Long dbId, String type, Collection<String> statuses);
+
+    /**
+     * Chuyển QUEUED -> RUNNING, trả về 0 nếu job đã bị hủy hoặc đã được worker khác nhận.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE BackupJob j SET j.status = 'RUNNING', j.startedAt = :startedAt, j.owner = :owner, " +
+            "j.heartbeatAt = :startedAt WHERE j.id = :id AND j.status = 'QUEUED'")
+    int claim(@Param("id") Long id, @Param("startedAt") Instant startedAt, @Param("owner") String owner);
+
+    /**
+     * Job RUNNING không còn instance nào chạy: của {@code owner} (instance vừa khởi động lại)
+     * hoặc heartbeat cũ hơn {@code cutoff}.
+     */
+    @Query("SELECT j FROM BackupJob j WHERE j.status = 'RUNNING' AND (j.owner IS NULL OR j.owner = :owner " +
+            "OR j.heartbeatAt IS NULL OR j.heartbeatAt < :cutoff)")
+    List<BackupJob> findOrphaned(@Param("owner") String owner, @Param("cutoff") Instant cutoff);
+
+    /**
+     * Đánh dấu FAILED nếu job vẫn mồ côi tại thời điểm UPDATE (instance chủ có thể vừa ghi heartbeat).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE BackupJob j SET j.status = 'FAILED', j.errorMessage = :error, j.finishedAt = :finishedAt " +
+            "WHERE j.id = :id AND j.status = 'RUNNING' AND (j.owner IS NULL OR j.owner = :owner " +
+            "OR j.heartbeatAt IS NULL OR j.heartbeatAt < :cutoff)")
+    int failOrphaned(@Param("id") Long id, @Param("owner") String owner, @Param("cutoff") Instant cutoff,
+                     @Param("error") String error, @Param("finishedAt") Instant finishedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE BackupJob j SET j.status = 'CANCELLED', j.finishedAt = :finishedAt WHERE j.id = :id AND j.status = 'QUEUED'")
+    int cancelQueued(@Param("id") Long id, @Param("finishedAt") Instant finishedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE BackupJob j SET j.status = 'CANCELLED', j.finishedAt = :finishedAt WHERE j.id = :id AND j.status = 'AWAITING_UPLOAD'")
+    int cancelUpload(@Param("id") Long id, @Param("finishedAt") Instant finishedAt);
+
+    /**
+     * Chuyển AWAITING_UPLOAD -> QUEUED sau khi file đã upload xong, trả về 0 nếu job đã bị hủy/hết hạn.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE BackupJob j SET j.status = 'QUEUED', j.uploadId = NULL, j.bytesTotal = :bytesTotal " +
+            "WHERE j.id = :id AND j.status = 'AWAITING_UPLOAD'")
+    int releaseUpload(@Param("id") Long id, @Param("bytesTotal") Long bytesTotal);
+
+    List<BackupJob> findByStatusAndCreatedAtBefore(String status, Instant createdAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE BackupJob j SET j.phase = :phase, j.bytesTotal = :bytesTotal, j.bytesProcessed = :bytesProcessed, " +
+            "j.statementsExecuted = :executed, j.statementsFailed = :failed, j.tables = :tables, " +
+            "j.heartbeatAt = :heartbeatAt WHERE j.id = :id AND j.status = 'RUNNING'")
+    int updateProgress(@Param("id") Long id, @Param("phase") String phase, @Param("bytesTotal") Long bytesTotal,
+                       @Param("bytesProcessed") Long bytesProcessed, @Param("executed") Long executed,
+                       @Param("failed") Long failed, @Param("tables") String tables,
+                       @Param("heartbeatAt") Instant heartbeatAt);
+}
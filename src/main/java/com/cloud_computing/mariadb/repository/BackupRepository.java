@@ -3,10 +3,28 @@ package com.cloud_computing.mariadb.repository;
 import com.cloud_computing.mariadb.entity.Backup;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 
 public interface BackupRepository extends JpaRepository<Backup, Long> {
     Page<Backup> findByDb_IdOrderByCreatedAtDesc(Long dbId, Pageable pageable);
     Long countByUser_Id(Long userId);
     void deleteAllByDb_Id(Long dbId);
+    List<Backup> findByDb_IdAndScheduledTrueOrderByCreatedAtDesc(Long dbId);
+    List<Backup> findByDb_IdAndFormat(Long dbId, String format);
+
+    // Backup full mới nhất có vị trí binlog: gốc của chuỗi incremental hiện tại
+    @EntityGraph(attributePaths = {"db"})
+    Optional<Backup> findFirstByDb_IdAndBinlogFileNotNullOrderByCreatedAtDesc(Long dbId);
+
+    // Backup full gần nhất trước thời điểm cần restore
+    Optional<Backup> findFirstByDb_IdAndBinlogFileNotNullAndCreatedAtLessThanEqualOrderByCreatedAtDesc(Long dbId, Instant to);
+
+    @Query("SELECT DISTINCT b.db.id FROM Backup b WHERE b.binlogFile IS NOT NULL")
+    List<Long> findDbIdsWithBinlogPosition();
 }
@@ -0,0 +1,19 @@
+package com.cloud_computing.mariadb.repository;
+
+import com.cloud_computing.mariadb.entity.BackupSchedule;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface BackupScheduleRepository extends JpaRepository<BackupSchedule, Long> {
+    Optional<BackupSchedule> findByDb_Id(Long dbId);
+
+    @EntityGraph(attributePaths = {"db", "user"})
+    List<BackupSchedule> findByEnabledTrueAndNextRunAtLessThanEqualOrderByNextRunAtAsc(Instant now);
+
+    @EntityGraph(attributePaths = {"db"})
+    List<BackupSchedule> findAllBy();
+}
@@ -0,0 +1,13 @@
+package com.cloud_computing.mariadb.repository;
+
+import com.cloud_computing.mariadb.entity.BinlogSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface BinlogSegmentRepository extends JpaRepository<BinlogSegment, Long> {
+    List<BinlogSegment> findByBackup_IdOrderByIdAsc(Long backupId);
+
+    Optional<BinlogSegment> findFirstByBackup_IdOrderByIdDesc(Long backupId);
+}
@@ -0,0 +1,12 @@
+package com.cloud_computing.mariadb.service;
+
+import com.cloud_computing.mariadb.dto.BackupJobDTO;
+import com.cloud_computing.mariadb.entity.BackupJob;
+import org.springframework.data.domain.Page;
+
+public interface BackupJobService {
+    BackupJobDTO getJob(Long dbId, Long jobId);
+    Page<BackupJobDTO> getJobs(Long dbId, int page, int size);
+    BackupJobDTO cancelJob(Long dbId, Long jobId);
+    BackupJobDTO toDTO(BackupJob job);
+}
@@ -0,0 +1,10 @@
+package com.cloud_computing.mariadb.service;
+
+import com.cloud_computing.mariadb.dto.BackupScheduleDTO;
+import com.cloud_computing.mariadb.dto.request.BackupScheduleRequest;
+
+public interface BackupScheduleService {
+    BackupScheduleDTO getSchedule(Long dbId);
+    BackupScheduleDTO saveSchedule(Long dbId, BackupScheduleRequest request);
+    void deleteSchedule(Long dbId);
+}
@@ -1,16 +1,29 @@
 package com.cloud_computing.mariadb.service;
 
 import com.cloud_computing.mariadb.dto.BackupDTO;
-import org.springframework.core.io.Resource;
+import com.cloud_computing.mariadb.dto.BackupDownload;
+import com.cloud_computing.mariadb.dto.BackupJobDTO;
+import com.cloud_computing.mariadb.dto.ImportUploadDTO;
+import com.cloud_computing.mariadb.dto.PresignedDownloadDTO;
+import com.cloud_computing.mariadb.entity.enums.BackupCompression;
+import com.cloud_computing.mariadb.entity.enums.BackupFormat;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Instant;
+
 
 public interface BackupService {
-    BackupDTO createBackup(Long dbId, String description);
+    BackupJobDTO createBackup(Long dbId, String description, BackupCompression compression, Integer level,
+                           BackupFormat format);
     Page<BackupDTO> getBackups(Long dbId, int page, int size);
-    Resource downloadBackup(Long backupId);
+    BackupDownload downloadBackup(Long backupId);
+    PresignedDownloadDTO getDownloadUrl(Long dbId, Long backupId);
     void deleteBackup(Long dbId, Long backupId);
-    void restoreBackup(Long dbId, Long backupId);
-    void importSqlDump(Long dbId, MultipartFile dumpFile);
+    BackupJobDTO restoreBackup(Long dbId, Long backupId, boolean applyBinlog);
+    BackupJobDTO restoreToPointInTime(Long dbId, Instant to);
+    BackupJobDTO restoreToNewDb(Long dbId, Long backupId, String name, boolean swap);
+    BackupJobDTO importSqlDump(Long dbId, MultipartFile dumpFile);
+    ImportUploadDTO startImportUpload(Long dbId, String fileName, Long size);
+    BackupJobDTO completeImportUpload(Long dbId, Long jobId);
 }
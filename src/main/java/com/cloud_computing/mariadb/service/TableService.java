@@ -1,10 +1,16 @@
 package com.cloud_computing.mariadb.service;
 
+import com.cloud_computing.mariadb.dto.BulkImportDTO;
 import com.cloud_computing.mariadb.dto.RowDTO;
+import com.cloud_computing.mariadb.dto.RowWriteResultDTO;
 import com.cloud_computing.mariadb.dto.TableDataDTO;
+import com.cloud_computing.mariadb.dto.request.BulkImportRequest;
 import com.cloud_computing.mariadb.dto.request.TableAlterRequest;
 import com.cloud_computing.mariadb.dto.request.TableCreateRequest;
+import com.cloud_computing.mariadb.entity.enums.RowCountStrategy;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -15,9 +21,13 @@ public interface TableService {
     void dropTable(Long dbId, String tableName);
     List<TableDataDTO> getTables(Long dbId);
     Map<String, Object> getTableStructure(Long dbId, String tableName);
-    TableDataDTO getTableData(Long dbId, String tableName, int page, int pageSize);
-    void insertRow(Long dbId, String tableName, RowDTO request);
-    void updateRow(Long dbId, String tableName, RowDTO request);
-    void deleteRow(Long dbId, String tableName, RowDTO request);
+    TableDataDTO getTableData(Long dbId, String tableName, int page, int pageSize, RowCountStrategy countStrategy);
+    TableDataDTO getTableDataByCursor(Long dbId, String tableName, String cursor, int pageSize, boolean descending,
+                                      RowCountStrategy countStrategy);
+    RowWriteResultDTO insertRow(Long dbId, String tableName, RowDTO request);
+    RowWriteResultDTO updateRow(Long dbId, String tableName, RowDTO request);
+    RowWriteResultDTO deleteRow(Long dbId, String tableName, RowDTO request);
     List<Map<String,String>> getTableColumns(Long dbId, String tableName);
+    StreamingResponseBody exportTable(Long dbId, String tableName, String format, boolean gzip);
+    BulkImportDTO bulkImport(Long dbId, String tableName, BulkImportRequest options, InputStream data);
 }
@@ -0,0 +1,354 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.dto.RestoreReportDTO;
+import com.cloud_computing.mariadb.entity.BackupJob;
+import com.cloud_computing.mariadb.entity.enums.BackupJobStatus;
+import com.cloud_computing.mariadb.entity.enums.BackupJobType;
+import com.cloud_computing.mariadb.repository.BackupJobRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Chạy các job backup/restore/import trên thread pool riêng.
+ * Trạng thái được ghi vào bảng backup_jobs: job QUEUED được chạy lại khi server khởi động.
+ * Job RUNNING ghi instance chạy nó và heartbeat (cùng lúc ghi tiến độ); khi instance khởi động lại,
+ * job của chính nó bị đánh dấu FAILED, job của instance khác chỉ bị đánh dấu khi heartbeat đã cũ.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BackupJobRunner {
+    static final int MAX_ERROR_LENGTH = 4000;
+
+    /**
+     * Thực thi một loại job, giá trị trả về (nếu có) được lưu dạng JSON vào {@code result}.
+     */
+    @FunctionalInterface
+    public interface JobHandler {
+        Object run(BackupJob job, JobProgress progress) throws Exception;
+    }
+
+    final BackupJobRepository backupJobRepository;
+    final ObjectMapper objectMapper;
+    final S3Client s3Client;
+
+    final Map<BackupJobType, JobHandler> handlers = new EnumMap<>(BackupJobType.class);
+    final Map<Long, JobProgress> running = new ConcurrentHashMap<>();
+
+    @Value("${aws.s3.bucket-name}")
+    String bucketName;
+
+    @Value("${backup.jobs.threads:2}")
+    int threads;
+
+    // Mặc định là hostname: ổn định qua các lần khởi động lại của cùng một máy
+    @Value("${backup.jobs.instance-id:}")
+    String instanceId;
+
+    // Job RUNNING không được ghi heartbeat trong khoảng này coi như instance chạy nó đã dừng
+    @Value("${backup.jobs.heartbeat-timeout-ms:60000}")
+    long heartbeatTimeoutMs;
+
+    // URL upload hết hạn sau khoảng này, job chờ upload quá hạn bị hủy
+    @Value("${backup.presign.upload-ttl-minutes:360}")
+    long uploadTtlMinutes;
+
+    ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        if (instanceId == null || instanceId.isBlank()) {
+            try {
+                instanceId = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                instanceId = UUID.randomUUID().toString();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running.values().forEach(JobProgress::cancel);
+        executor.shutdownNow();
+    }
+
+    public void register(BackupJobType type, JobHandler handler) {
+        handlers.put(type, handler);
+    }
+
+    /**
+     * Lưu job ở trạng thái QUEUED và đưa vào hàng đợi sau khi transaction hiện tại commit.
+     */
+    public BackupJob submit(BackupJob job) {
+        job.setStatus(BackupJobStatus.QUEUED.name());
+        BackupJob saved = backupJobRepository.save(job);
+        enqueueAfterCommit(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Lưu job ở trạng thái AWAITING_UPLOAD: chỉ chạy sau khi {@link #releaseUpload} được gọi.
+     */
+    public BackupJob awaitUpload(BackupJob job) {
+        job.setStatus(BackupJobStatus.AWAITING_UPLOAD.name());
+        return backupJobRepository.save(job);
+    }
+
+    /**
+     * File của job đã upload xong: chuyển sang QUEUED và đưa vào hàng đợi.
+     * Trả về false nếu job không còn chờ upload (đã bị hủy hoặc hết hạn).
+     */
+    public boolean releaseUpload(Long jobId, long bytesTotal) {
+        if (backupJobRepository.releaseUpload(jobId, bytesTotal) == 0) {
+            return false;
+        }
+        enqueueAfterCommit(jobId);
+        return true;
+    }
+
+    private void enqueueAfterCommit(Long jobId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(jobId);
+                }
+            });
+        } else {
+            enqueue(jobId);
+        }
+    }
+
+    /**
+     * Hủy job: job đang chờ bị hủy ngay, job đang chạy dừng ở điểm kiểm tra tiếp theo.
+     * Trả về false nếu job đã kết thúc.
+     */
+    public boolean cancel(Long jobId) {
+        if (backupJobRepository.cancelQueued(jobId, Instant.now()) > 0) {
+            return true;
+        }
+        if (backupJobRepository.cancelUpload(jobId, Instant.now()) > 0) {
+            backupJobRepository.findById(jobId).ifPresent(job -> discardUpload(job, null));
+            return true;
+        }
+        JobProgress progress = running.get(jobId);
+        if (progress == null) {
+            return false;
+        }
+        progress.cancel();
+        return true;
+    }
+
+    /**
+     * Tiến độ hiện tại của job đang chạy trên instance này, null nếu job không chạy.
+     */
+    public JobProgress getProgress(Long jobId) {
+        return running.get(jobId);
+    }
+
+    private void enqueue(Long jobId) {
+        executor.execute(() -> execute(jobId));
+    }
+
+    private void execute(Long jobId) {
+        if (backupJobRepository.claim(jobId, Instant.now(), instanceId) == 0) {
+            // Đã bị hủy trước khi tới lượt
+            return;
+        }
+        BackupJob job = backupJobRepository.findWithDetailsById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        JobProgress progress = new JobProgress();
+        running.put(jobId, progress);
+
+        BackupJobStatus status;
+        String error = null;
+        String result = null;
+        try {
+            JobHandler handler = handlers.get(BackupJobType.valueOf(job.getType()));
+            if (handler == null) {
+                throw new IllegalStateException("Không có handler cho job " + job.getType());
+            }
+            Object value = handler.run(job, progress);
+            result = value != null ? objectMapper.writeValueAsString(value) : null;
+            status = BackupJobStatus.SUCCEEDED;
+        } catch (Exception e) {
+            if (progress.isCancelled() || e instanceof CancellationException) {
+                status = BackupJobStatus.CANCELLED;
+                log.info("Job {} ({}) đã bị hủy", jobId, job.getType());
+            } else {
+                status = BackupJobStatus.FAILED;
+                error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                log.error("Job {} ({}) thất bại", jobId, job.getType(), e);
+            }
+        } finally {
+            running.remove(jobId);
+        }
+
+        job.setStatus(status.name());
+        job.setPhase(progress.getPhase());
+        job.setBytesTotal(progress.getBytesTotal() > 0 ? progress.getBytesTotal() : null);
+        job.setBytesProcessed(progress.getBytesProcessed());
+        job.setStatementsExecuted(progress.getStatementsExecuted());
+        job.setStatementsFailed(progress.getStatementsFailed());
+        // Giữ snapshot cuối: job lỗi vẫn cho biết bảng nào đã restore xong
+        job.setTables(writeTables(progress));
+        job.setErrorMessage(error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        job.setResult(result);
+        job.setFinishedAt(Instant.now());
+        deleteStaging(job);
+        backupJobRepository.save(job);
+    }
+
+    /**
+     * Ghi tiến độ của các job đang chạy xuống database để API và các instance khác đọc được,
+     * đồng thời là heartbeat của job.
+     */
+    @Scheduled(fixedDelayString = "${backup.jobs.progress-flush-ms:2000}")
+    void flushProgress() {
+        Instant now = Instant.now();
+        running.forEach((jobId, progress) -> backupJobRepository.updateProgress(jobId, progress.getPhase(),
+                progress.getBytesTotal() > 0 ? progress.getBytesTotal() : null, progress.getBytesProcessed(),
+                progress.getStatementsExecuted(), progress.getStatementsFailed(), writeTables(progress), now));
+    }
+
+    private String writeTables(JobProgress progress) {
+        List<RestoreReportDTO.TableProgress> tables = progress.getTables();
+        if (tables == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(tables);
+        } catch (JsonProcessingException e) {
+            log.warn("Không thể ghi tiến độ từng bảng: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Job của instance đã dừng (heartbeat quá hạn) bị đánh dấu FAILED.
+     */
+    @Scheduled(fixedDelayString = "${backup.jobs.heartbeat-timeout-ms:60000}",
+            initialDelayString = "${backup.jobs.heartbeat-timeout-ms:60000}")
+    void failStaleJobs() {
+        failOrphaned(null, "Job bị gián đoạn do server chạy job đã dừng");
+    }
+
+    /**
+     * Hủy các job import mà client không upload xong trước khi URL hết hạn.
+     */
+    @Scheduled(fixedDelayString = "${backup.jobs.upload-expiry-check-ms:600000}")
+    void expireUploads() {
+        Instant cutoff = Instant.now().minus(uploadTtlMinutes, ChronoUnit.MINUTES);
+        for (BackupJob job : backupJobRepository.findByStatusAndCreatedAtBefore(BackupJobStatus.AWAITING_UPLOAD.name(), cutoff)) {
+            if (backupJobRepository.cancelUpload(job.getId(), Instant.now()) > 0) {
+                log.info("Job {} hết hạn upload", job.getId());
+                discardUpload(job, "File import không được upload xong trước khi URL hết hạn");
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void recover() {
+        // Lúc khởi động instance chưa chạy job nào: job RUNNING mang instanceId này là của lần chạy trước
+        failOrphaned(instanceId, "Job bị gián đoạn do server khởi động lại");
+        for (BackupJob job : backupJobRepository.findByStatus(BackupJobStatus.QUEUED.name())) {
+            enqueue(job.getId());
+        }
+    }
+
+    /**
+     * Đánh dấu FAILED các job RUNNING của {@code owner} hoặc có heartbeat quá hạn.
+     */
+    private void failOrphaned(String owner, String error) {
+        Instant cutoff = Instant.now().minusMillis(heartbeatTimeoutMs);
+        for (BackupJob job : backupJobRepository.findOrphaned(owner, cutoff)) {
+            if (running.containsKey(job.getId())
+                    || backupJobRepository.failOrphaned(job.getId(), owner, cutoff, error, Instant.now()) == 0) {
+                continue;
+            }
+            // Entity được đọc trước lệnh UPDATE, ghi lại trạng thái để save không ghi đè
+            job.setStatus(BackupJobStatus.FAILED.name());
+            job.setErrorMessage(error);
+            job.setFinishedAt(Instant.now());
+            deleteStaging(job);
+            backupJobRepository.save(job);
+            log.warn("Job {} ({}) của {} bị đánh dấu FAILED: {}", job.getId(), job.getType(), job.getOwner(), error);
+        }
+    }
+
+    /**
+     * Job chờ upload đã bị hủy: abort multipart upload chưa xong (các part đã upload bị xóa)
+     * và xóa object tạm nếu đã upload xong.
+     */
+    private void discardUpload(BackupJob job, String error) {
+        // Entity có thể được đọc trước lệnh UPDATE, ghi lại trạng thái để save không ghi đè
+        job.setStatus(BackupJobStatus.CANCELLED.name());
+        job.setErrorMessage(error);
+        job.setFinishedAt(Instant.now());
+        if (job.getUploadId() != null) {
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(job.getStagingKey())
+                        .uploadId(job.getUploadId())
+                        .build());
+            } catch (Exception e) {
+                log.warn("Không thể abort upload của job {}: {}", job.getId(), e.getMessage());
+            }
+            job.setUploadId(null);
+        }
+        deleteStaging(job);
+        backupJobRepository.save(job);
+    }
+
+    /**
+     * Object tạm của job (file import đã upload) chỉ cần tới khi job kết thúc.
+     */
+    private void deleteStaging(BackupJob job) {
+        if (job.getStagingKey() == null) {
+            return;
+        }
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(job.getStagingKey())
+                    .build());
+            job.setStagingKey(null);
+        } catch (Exception e) {
+            log.warn("Không thể xóa object tạm {} của job {}: {}", job.getStagingKey(), job.getId(), e.getMessage());
+        }
+    }
+}
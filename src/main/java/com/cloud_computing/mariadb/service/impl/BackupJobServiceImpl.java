@@ -0,0 +1,149 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.dto.BackupJobDTO;
+import com.cloud_computing.mariadb.entity.BackupJob;
+import com.cloud_computing.mariadb.entity.DbMember;
+import com.cloud_computing.mariadb.entity.User;
+import com.cloud_computing.mariadb.entity.enums.BackupJobStatus;
+import com.cloud_computing.mariadb.entity.enums.DbRole;
+import com.cloud_computing.mariadb.exception.BadRequestException;
+import com.cloud_computing.mariadb.exception.ResourceNotFoundException;
+import com.cloud_computing.mariadb.exception.UnauthorizedException;
+import com.cloud_computing.mariadb.repository.BackupJobRepository;
+import com.cloud_computing.mariadb.repository.DbMemberRepository;
+import com.cloud_computing.mariadb.repository.UserRepository;
+import com.cloud_computing.mariadb.service.BackupJobService;
+import com.cloud_computing.mariadb.util.SecurityUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BackupJobServiceImpl implements BackupJobService {
+    final BackupJobRepository backupJobRepository;
+    final DbMemberRepository dbMemberRepository;
+    final UserRepository userRepository;
+    final BackupJobRunner backupJobRunner;
+    final ObjectMapper objectMapper;
+
+    @Override
+    public BackupJobDTO getJob(Long dbId, Long jobId) {
+        getMember(dbId, getCurrentUser());
+        return toDTO(getDbJob(dbId, jobId));
+    }
+
+    @Override
+    public Page<BackupJobDTO> getJobs(Long dbId, int page, int size) {
+        getMember(dbId, getCurrentUser());
+        return backupJobRepository.findByDb_IdOrderByCreatedAtDesc(dbId, PageRequest.of(page, size)).map(this::toDTO);
+    }
+
+    @Override
+    public BackupJobDTO cancelJob(Long dbId, Long jobId) {
+        User currentUser = getCurrentUser();
+        DbMember member = getMember(dbId, currentUser);
+        BackupJob job = getDbJob(dbId, jobId);
+
+        boolean isOwner = job.getUser() != null && Objects.equals(job.getUser().getId(), currentUser.getId());
+        if (!isOwner && !DbRole.OWNER.name().equals(member.getRole()) && !DbRole.ADMIN.name().equals(member.getRole())) {
+            throw new UnauthorizedException("Chỉ người tạo job hoặc OWNER/ADMIN mới có quyền hủy job.");
+        }
+        if (!backupJobRunner.cancel(jobId)) {
+            throw new BadRequestException("Job đã kết thúc hoặc không chạy trên server này.");
+        }
+        return toDTO(backupJobRepository.findById(jobId).orElse(job));
+    }
+
+    @Override
+    public BackupJobDTO toDTO(BackupJob job) {
+        Long bytesTotal = job.getBytesTotal();
+        Long bytesProcessed = job.getBytesProcessed();
+        Long executed = job.getStatementsExecuted();
+        Long failed = job.getStatementsFailed();
+        String phase = job.getPhase();
+
+        // Job đang chạy trên instance này: lấy số liệu mới nhất thay vì bản đã ghi xuống database
+        JobProgress progress = backupJobRunner.getProgress(job.getId());
+        if (progress != null) {
+            bytesTotal = progress.getBytesTotal() > 0 ? progress.getBytesTotal() : null;
+            bytesProcessed = progress.getBytesProcessed();
+            executed = progress.getStatementsExecuted();
+            failed = progress.getStatementsFailed();
+            phase = progress.getPhase();
+        }
+
+        Double percent = null;
+        Long etaSeconds = null;
+        if (BackupJobStatus.SUCCEEDED.name().equals(job.getStatus())) {
+            percent = 100.0;
+        } else if (bytesTotal != null && bytesTotal > 0 && bytesProcessed != null) {
+            // Tổng là ước lượng, chưa xong thì không báo 100%
+            percent = Math.min(99.9, Math.round(bytesProcessed * 1000.0 / bytesTotal) / 10.0);
+            if (BackupJobStatus.RUNNING.name().equals(job.getStatus()) && job.getStartedAt() != null
+                    && bytesProcessed > 0) {
+                long elapsed = Duration.between(job.getStartedAt(), Instant.now()).toMillis();
+                long remaining = Math.max(0, bytesTotal - bytesProcessed);
+                etaSeconds = Math.round(elapsed * ((double) remaining / bytesProcessed) / 1000);
+            }
+        }
+
+        return BackupJobDTO.builder()
+                .id(job.getId())
+                .dbId(job.getDb().getId())
+                .userId(job.getUser() != null ? job.getUser().getId() : null)
+                .type(job.getType())
+                .status(job.getStatus())
+                .phase(phase)
+                .backupId(job.getBackup() != null ? job.getBackup().getId() : null)
+                .bytesTotal(bytesTotal)
+                .bytesProcessed(bytesProcessed)
+                .statementsExecuted(executed)
+                .statementsFailed(failed)
+                .percent(percent)
+                .etaSeconds(etaSeconds)
+                .errorMessage(job.getErrorMessage())
+                .tables(job.getTables() != null ? readResult(job.getTables()) : null)
+                .result(readResult(job.getResult()))
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+
+    private JsonNode readResult(String result) {
+        if (result == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(result);
+        } catch (Exception e) {
+            return objectMapper.getNodeFactory().textNode(result);
+        }
+    }
+
+    private BackupJob getDbJob(Long dbId, Long jobId) {
+        return backupJobRepository.findByIdAndDb_Id(jobId, dbId)
+                .orElseThrow(() -> new ResourceNotFoundException("Job không tồn tại."));
+    }
+
+    private DbMember getMember(Long dbId, User user) {
+        return dbMemberRepository.findByDb_IdAndUser_Id(dbId, user.getId())
+                .orElseThrow(() -> new UnauthorizedException("Bạn không có quyền truy cập database này."));
+    }
+
+    private User getCurrentUser() {
+        return userRepository.findByUsername(SecurityUtils.getUsername())
+                .orElseThrow(() -> new UnauthorizedException("Bạn cần đăng nhập."));
+    }
+}
@@ -0,0 +1,70 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Manifest của backup dạng CHUNKED, lưu thành manifest.json cạnh các object dữ liệu.
+ * Thứ tự restore: schema -> chunk của từng bảng -> post (view, routine, trigger, event).
+ */
+public record BackupManifest(
+        int version,
+        String database,
+        Instant createdAt,
+        String compression,
+        Part schema,
+        List<TableEntry> tables,
+        Part post,
+        BinlogPosition binlog,
+        String checksum) {
+
+    public static final int VERSION = 1;
+
+    /**
+     * Vị trí binlog tại thời điểm snapshot, điểm bắt đầu của các backup incremental.
+     * null khi server không bật binlog hoặc dump không giữ được global read lock.
+     */
+    public record BinlogPosition(String file, long position, String gtid) {
+    }
+
+    public record TableEntry(String name, long estimatedRows, List<Part> chunks) {
+    }
+
+    /**
+     * {@code sha256}: SHA-256 (hex) của object trên S3, tính trong lúc upload.
+     */
+    public record Part(String key, long bytes, long uncompressedBytes, long rows, String sha256) {
+    }
+
+    /**
+     * Checksum của backup: SHA-256 của các SHA-256 part (dạng byte) ghép theo thứ tự restore.
+     * Không phải SHA-256 của file download nhưng không cần đọc lại dữ liệu từ S3.
+     */
+    public static String checksum(List<String> partHashes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        partHashes.forEach(hash -> digest.update(HexFormat.of().parseHex(hash)));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public long totalBytes() {
+        return schema.bytes() + post.bytes() + tables.stream()
+                .flatMap(table -> table.chunks().stream())
+                .mapToLong(Part::bytes)
+                .sum();
+    }
+
+    public long totalUncompressedBytes() {
+        return schema.uncompressedBytes() + post.uncompressedBytes() + tables.stream()
+                .flatMap(table -> table.chunks().stream())
+                .mapToLong(Part::uncompressedBytes)
+                .sum();
+    }
+}
@@ -0,0 +1,140 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.entity.Backup;
+import com.cloud_computing.mariadb.entity.BackupSchedule;
+import com.cloud_computing.mariadb.entity.enums.BackupFormat;
+import com.cloud_computing.mariadb.repository.BackupRepository;
+import com.cloud_computing.mariadb.repository.BackupScheduleRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Xóa backup theo lịch đã hết hạn theo chính sách giữ lại ngày/tuần/tháng.
+ * Object của mọi backup hết hạn được gom lại và xóa theo lô bằng DeleteObjects.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BackupPruner {
+    final BackupScheduleRepository backupScheduleRepository;
+    final BackupRepository backupRepository;
+    final S3AsyncTransfer s3AsyncTransfer;
+    final DedupChunkStore dedupChunkStore;
+
+    @Value("${backup.schedule.zone:UTC}")
+    ZoneId zone;
+
+    @Scheduled(cron = "${backup.retention.cron:0 15 * * * *}")
+    void prune() {
+        List<Backup> expired = new ArrayList<>();
+        Map<Long, String> dbNames = new HashMap<>();
+        for (BackupSchedule schedule : backupScheduleRepository.findAllBy()) {
+            List<Backup> backups = backupRepository.findByDb_IdAndScheduledTrueOrderByCreatedAtDesc(schedule.getDb().getId());
+            expired.addAll(selectExpired(backups, schedule, zone));
+            dbNames.put(schedule.getDb().getId(), schedule.getDb().getName());
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        Map<Backup, List<String>> keysByBackup = new LinkedHashMap<>();
+        for (Backup backup : expired) {
+            try {
+                List<String> keys = new ArrayList<>(BackupFormat.of(backup.getFormat()) == BackupFormat.CHUNKED
+                        ? s3AsyncTransfer.listKeys(BackupServiceImpl.chunkedPrefix(backup))
+                        : List.of(backup.getS3Key()));
+                if (backup.getBinlogFile() != null) {
+                    keys.addAll(s3AsyncTransfer.listKeys(BinlogArchiver.segmentPrefix(backup)));
+                }
+                keysByBackup.put(backup, keys);
+            } catch (Exception e) {
+                log.warn("Không thể liệt kê object của backup {}: {}", backup.getId(), e.getMessage());
+            }
+        }
+
+        Set<String> failed;
+        try {
+            failed = new HashSet<>(s3AsyncTransfer.deleteKeys(
+                    keysByBackup.values().stream().flatMap(List::stream).toList()));
+        } catch (IOException e) {
+            log.warn("Không thể xóa object của backup hết hạn: {}", e.getMessage());
+            return;
+        }
+
+        // Backup còn object chưa xóa được giữ lại record để lần sau xóa tiếp
+        List<Backup> deleted = keysByBackup.entrySet().stream()
+                .filter(entry -> entry.getValue().stream().noneMatch(failed::contains))
+                .map(Map.Entry::getKey)
+                .toList();
+        backupRepository.deleteAllInBatch(deleted);
+        log.info("Đã xóa {} backup hết hạn ({} object)", deleted.size(),
+                deleted.stream().mapToInt(backup -> keysByBackup.get(backup).size()).sum());
+
+        // Backup DEDUP chỉ sở hữu manifest, chunk không còn được tham chiếu được xóa sau khi xóa record
+        deleted.stream()
+                .filter(backup -> BackupFormat.of(backup.getFormat()) == BackupFormat.DEDUP)
+                .map(backup -> backup.getDb().getId())
+                .distinct()
+                .forEach(dbId -> {
+                    try {
+                        dedupChunkStore.collectGarbage(dbId, dbNames.get(dbId));
+                    } catch (Exception e) {
+                        log.warn("Không thể GC chunk của database {}: {}", dbId, e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Giữ backup mới nhất của mỗi ngày/tuần/tháng gần nhất (theo số lượng cấu hình), phần còn lại hết hạn.
+     * Backup mới nhất luôn được giữ. {@code backups} phải sắp xếp mới nhất trước.
+     */
+    static List<Backup> selectExpired(List<Backup> backups, BackupSchedule schedule, ZoneId zone) {
+        if (backups.isEmpty()) {
+            return List.of();
+        }
+        Set<Backup> keep = new HashSet<>();
+        keep.add(backups.get(0));
+        keepNewestPerPeriod(backups, schedule.getKeepDaily(), zone, date -> date, keep);
+        keepNewestPerPeriod(backups, schedule.getKeepWeekly(), zone,
+                date -> date.get(IsoFields.WEEK_BASED_YEAR) * 100 + date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR), keep);
+        keepNewestPerPeriod(backups, schedule.getKeepMonthly(), zone, YearMonth::from, keep);
+        return backups.stream().filter(backup -> !keep.contains(backup)).toList();
+    }
+
+    private static void keepNewestPerPeriod(List<Backup> backups, Integer count, ZoneId zone,
+                                            Function<LocalDate, Object> period, Set<Backup> keep) {
+        if (count == null || count <= 0) {
+            return;
+        }
+        Set<Object> seen = new HashSet<>();
+        for (Backup backup : backups) {
+            Object key = period.apply(backup.getCreatedAt().atZone(zone).toLocalDate());
+            if (seen.add(key)) {
+                keep.add(backup);
+                if (seen.size() >= count) {
+                    return;
+                }
+            }
+        }
+    }
+}
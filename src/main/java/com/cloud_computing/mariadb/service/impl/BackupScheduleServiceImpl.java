@@ -0,0 +1,124 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.annotation.AuditLog;
+import com.cloud_computing.mariadb.dto.BackupScheduleDTO;
+import com.cloud_computing.mariadb.dto.request.BackupScheduleRequest;
+import com.cloud_computing.mariadb.entity.BackupSchedule;
+import com.cloud_computing.mariadb.entity.Db;
+import com.cloud_computing.mariadb.entity.DbMember;
+import com.cloud_computing.mariadb.entity.User;
+import com.cloud_computing.mariadb.entity.enums.DbRole;
+import com.cloud_computing.mariadb.exception.BadRequestException;
+import com.cloud_computing.mariadb.exception.ResourceNotFoundException;
+import com.cloud_computing.mariadb.exception.UnauthorizedException;
+import com.cloud_computing.mariadb.repository.BackupScheduleRepository;
+import com.cloud_computing.mariadb.repository.DbMemberRepository;
+import com.cloud_computing.mariadb.repository.DbRepository;
+import com.cloud_computing.mariadb.repository.UserRepository;
+import com.cloud_computing.mariadb.service.BackupScheduleService;
+import com.cloud_computing.mariadb.util.SecurityUtils;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BackupScheduleServiceImpl implements BackupScheduleService {
+    final BackupScheduleRepository backupScheduleRepository;
+    final DbRepository dbRepository;
+    final DbMemberRepository dbMemberRepository;
+    final UserRepository userRepository;
+    final BackupScheduler backupScheduler;
+
+    @Override
+    public BackupScheduleDTO getSchedule(Long dbId) {
+        getMember(dbId, getCurrentUser());
+        return toDTO(backupScheduleRepository.findByDb_Id(dbId)
+                .orElseThrow(() -> new ResourceNotFoundException("Database chưa có lịch backup.")));
+    }
+
+    @Override
+    @Transactional
+    @AuditLog(action = "SAVE_BACKUP_SCHEDULE", description = "Cập nhật lịch backup")
+    public BackupScheduleDTO saveSchedule(Long dbId, BackupScheduleRequest request) {
+        User currentUser = getCurrentUser();
+        checkAdmin(getMember(dbId, currentUser));
+        Db db = dbRepository.findById(dbId)
+                .orElseThrow(() -> new ResourceNotFoundException("Database không tồn tại."));
+
+        if (request.getCron() == null || !CronExpression.isValidExpression(request.getCron())) {
+            throw new BadRequestException("Cron không hợp lệ (cần 6 trường: giây phút giờ ngày tháng thứ).");
+        }
+        if (request.getKeepDaily() < 0 || request.getKeepWeekly() < 0 || request.getKeepMonthly() < 0) {
+            throw new BadRequestException("Số backup giữ lại không được âm.");
+        }
+        Instant nextRunAt = backupScheduler.nextRun(request.getCron(), Instant.now());
+        if (nextRunAt == null) {
+            throw new BadRequestException("Cron không có lần chạy nào trong tương lai.");
+        }
+
+        BackupSchedule schedule = backupScheduleRepository.findByDb_Id(dbId)
+                .orElseGet(() -> BackupSchedule.builder().db(db).build());
+        schedule.setUser(currentUser);
+        schedule.setCronExpression(request.getCron());
+        schedule.setEnabled(request.isEnabled());
+        schedule.setKeepDaily(request.getKeepDaily());
+        schedule.setKeepWeekly(request.getKeepWeekly());
+        schedule.setKeepMonthly(request.getKeepMonthly());
+        schedule.setCompression(request.getCompression() != null ? request.getCompression().name() : null);
+        schedule.setFormat(request.getFormat() != null ? request.getFormat().name() : null);
+        schedule.setNextRunAt(nextRunAt);
+        return toDTO(backupScheduleRepository.save(schedule));
+    }
+
+    @Override
+    @Transactional
+    @AuditLog(action = "DELETE_BACKUP_SCHEDULE", description = "Xóa lịch backup")
+    public void deleteSchedule(Long dbId) {
+        checkAdmin(getMember(dbId, getCurrentUser()));
+        BackupSchedule schedule = backupScheduleRepository.findByDb_Id(dbId)
+                .orElseThrow(() -> new ResourceNotFoundException("Database chưa có lịch backup."));
+        // Backup đã tạo theo lịch được giữ nguyên, chỉ không còn bị xóa tự động
+        backupScheduleRepository.delete(schedule);
+    }
+
+    private BackupScheduleDTO toDTO(BackupSchedule schedule) {
+        return BackupScheduleDTO.builder()
+                .id(schedule.getId())
+                .dbId(schedule.getDb().getId())
+                .userId(schedule.getUser() != null ? schedule.getUser().getId() : null)
+                .cron(schedule.getCronExpression())
+                .enabled(schedule.getEnabled())
+                .keepDaily(schedule.getKeepDaily())
+                .keepWeekly(schedule.getKeepWeekly())
+                .keepMonthly(schedule.getKeepMonthly())
+                .compression(schedule.getCompression())
+                .format(schedule.getFormat())
+                .lastRunAt(schedule.getLastRunAt())
+                .nextRunAt(schedule.getNextRunAt())
+                .createdAt(schedule.getCreatedAt())
+                .build();
+    }
+
+    private void checkAdmin(DbMember member) {
+        if (!DbRole.OWNER.name().equals(member.getRole()) && !DbRole.ADMIN.name().equals(member.getRole())) {
+            throw new UnauthorizedException("Chỉ OWNER/ADMIN mới có quyền đặt lịch backup.");
+        }
+    }
+
+    private DbMember getMember(Long dbId, User user) {
+        return dbMemberRepository.findByDb_IdAndUser_Id(dbId, user.getId())
+                .orElseThrow(() -> new UnauthorizedException("Bạn không có quyền truy cập database này."));
+    }
+
+    private User getCurrentUser() {
+        return userRepository.findByUsername(SecurityUtils.getUsername())
+                .orElseThrow(() -> new UnauthorizedException("Bạn cần đăng nhập."));
+    }
+}
@@ -0,0 +1,88 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.entity.BackupJob;
+import com.cloud_computing.mariadb.entity.BackupSchedule;
+import com.cloud_computing.mariadb.entity.enums.BackupJobStatus;
+import com.cloud_computing.mariadb.entity.enums.BackupJobType;
+import com.cloud_computing.mariadb.repository.BackupJobRepository;
+import com.cloud_computing.mariadb.repository.BackupScheduleRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Tạo job backup cho các lịch đã tới giờ. Số backup theo lịch đang chờ/chạy không vượt quá
+ * {@code max-concurrent}; lịch chưa tới lượt vẫn giữ nextRunAt cũ và được lấy ở lần quét sau,
+ * nhờ vậy hàng trăm database cùng đặt lịch lúc 0h được backup dần thay vì cùng lúc.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BackupScheduler {
+    static final List<String> ACTIVE_STATUSES = List.of(BackupJobStatus.QUEUED.name(), BackupJobStatus.RUNNING.name());
+
+    final BackupScheduleRepository backupScheduleRepository;
+    final BackupJobRepository backupJobRepository;
+    final BackupJobRunner backupJobRunner;
+
+    @Value("${backup.schedule.max-concurrent:2}")
+    int maxConcurrent;
+
+    @Value("${backup.schedule.zone:UTC}")
+    ZoneId zone;
+
+    /**
+     * Lần chạy tiếp theo sau {@code from}, null nếu cron không bao giờ khớp nữa.
+     */
+    public Instant nextRun(String cronExpression, Instant from) {
+        ZonedDateTime next = CronExpression.parse(cronExpression).next(from.atZone(zone));
+        return next != null ? next.toInstant() : null;
+    }
+
+    @Scheduled(fixedDelayString = "${backup.schedule.poll-ms:60000}")
+    void runDueSchedules() {
+        long available = maxConcurrent - backupJobRepository.countByScheduledTrueAndStatusIn(ACTIVE_STATUSES);
+        if (available <= 0) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (BackupSchedule schedule : backupScheduleRepository.findByEnabledTrueAndNextRunAtLessThanEqualOrderByNextRunAtAsc(now)) {
+            if (available <= 0) {
+                break;
+            }
+            // Backup trước của database này chưa xong: bỏ lượt này, không xếp chồng job
+            boolean skip = backupJobRepository.existsByDb_IdAndTypeAndStatusIn(
+                    schedule.getDb().getId(), BackupJobType.BACKUP.name(), ACTIVE_STATUSES);
+            if (!skip && schedule.getUser() == null) {
+                log.warn("Lịch backup {} của {} không còn người tạo, bỏ qua", schedule.getId(), schedule.getDb().getName());
+                skip = true;
+            }
+            if (!skip) {
+                backupJobRunner.submit(BackupJob.builder()
+                        .db(schedule.getDb())
+                        .user(schedule.getUser())
+                        .type(BackupJobType.BACKUP.name())
+                        .scheduled(true)
+                        .description("Backup theo lịch")
+                        .compression(schedule.getCompression())
+                        .format(schedule.getFormat())
+                        .build());
+                schedule.setLastRunAt(now);
+                available--;
+            }
+            schedule.setNextRunAt(nextRun(schedule.getCronExpression(), now));
+            backupScheduleRepository.save(schedule);
+        }
+    }
+}
@@ -2,48 +2,78 @@ package com.cloud_computing.mariadb.service.impl;
 
 import com.cloud_computing.mariadb.annotation.AuditLog;
 import com.cloud_computing.mariadb.dto.BackupDTO;
+import com.cloud_computing.mariadb.dto.BackupDownload;
+import com.cloud_computing.mariadb.dto.BackupJobDTO;
+import com.cloud_computing.mariadb.dto.DbDTO;
+import com.cloud_computing.mariadb.dto.ImportUploadDTO;
+import com.cloud_computing.mariadb.dto.PresignedDownloadDTO;
+import com.cloud_computing.mariadb.dto.RestoreReportDTO;
 import com.cloud_computing.mariadb.entity.*;
+import com.cloud_computing.mariadb.entity.enums.BackupCompression;
+import com.cloud_computing.mariadb.entity.enums.BackupFormat;
+import com.cloud_computing.mariadb.entity.enums.BackupJobStatus;
+import com.cloud_computing.mariadb.entity.enums.BackupJobType;
 import com.cloud_computing.mariadb.entity.enums.DbRole;
 import com.cloud_computing.mariadb.exception.BadRequestException;
 import com.cloud_computing.mariadb.exception.ResourceNotFoundException;
 import com.cloud_computing.mariadb.exception.UnauthorizedException;
 import com.cloud_computing.mariadb.repository.*;
+import com.cloud_computing.mariadb.service.BackupJobService;
 import com.cloud_computing.mariadb.service.BackupService;
+import com.cloud_computing.mariadb.service.DbService;
+import com.cloud_computing.mariadb.util.CompressingInputStream;
+import com.cloud_computing.mariadb.util.CompressionUtils;
 import com.cloud_computing.mariadb.util.SecurityUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 
 import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ContentDisposition;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListPartsRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -54,6 +84,23 @@ public class BackupServiceImpl implements BackupService {
     final DbUserRepository dbUserRepository;
     final UserRepository userRepository;
     final S3Client s3Client;
+    final TenantDataSourceRegistry tenantDataSourceRegistry;
+    final RowCountCache rowCountCache;
+    final SchemaMetadataCache schemaMetadataCache;
+    final S3AsyncTransfer s3AsyncTransfer;
+    final ParallelDumpEngine parallelDumpEngine;
+    final SqlScriptExecutor sqlScriptExecutor;
+    final ParallelRestoreEngine parallelRestoreEngine;
+    final ObjectMapper objectMapper;
+    final BackupJobRunner backupJobRunner;
+    final BackupJobService backupJobService;
+    final BinlogArchiver binlogArchiver;
+    final BinlogSegmentRepository binlogSegmentRepository;
+    final DbService dbService;
+    final SchemaSwapper schemaSwapper;
+    final DedupChunkStore dedupChunkStore;
+    final S3Presigner s3Presigner;
+    final BackupJobRepository backupJobRepository;
     @Value("${spring.datasource.secondary.jdbc-url}")
     String mariadbUrl;
     @Value("${spring.datasource.secondary.username}")
@@ -63,14 +110,43 @@ public class BackupServiceImpl implements BackupService {
     @Value("${aws.s3.bucket-name}")
     String bucketName;
 
-    @Value("${backup.temp-dir}")
-    String tempDir;
+    @Value("${backup.compression.codec:ZSTD}")
+    BackupCompression defaultCompression;
 
+    @Value("${backup.compression.level:3}")
+    int defaultCompressionLevel;
+
+    @Value("${backup.format:CHUNKED}")
+    BackupFormat defaultFormat;
+
+    @Value("${backup.presign.download-ttl-minutes:15}")
+    long downloadTtlMinutes;
+
+    @Value("${backup.presign.upload-ttl-minutes:360}")
+    long uploadTtlMinutes;
+
+    @Value("${aws.s3.transfer.part-size-mb:16}")
+    int partSizeMb;
+
+    // Giới hạn của S3 multipart upload
+    static final int MAX_UPLOAD_PARTS = 10_000;
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    static final long MAX_UPLOAD_SIZE = 5L * 1024 * 1024 * 1024 * 1024;
+
+    static final String MANIFEST_FILE = "manifest.json";
+
+    @PostConstruct
+    void registerJobHandlers() {
+        backupJobRunner.register(BackupJobType.BACKUP, this::runBackupJob);
+        backupJobRunner.register(BackupJobType.RESTORE, this::runRestoreJob);
+        backupJobRunner.register(BackupJobType.IMPORT, this::runImportJob);
+    }
 
     @Override
     @Transactional
     @AuditLog(action = "CREATE_BACKUP", description = "tạo backup")
-    public BackupDTO createBackup(Long dbId, String description) {
+    public BackupJobDTO createBackup(Long dbId, String description, BackupCompression compression, Integer level,
+                                  BackupFormat format) {
         User currentUser = userRepository.findByUsername(SecurityUtils.getUsername())
                 .orElseThrow(() -> new UnauthorizedException("Bạn cần đăng nhập."));
         DbMember member = dbMemberRepository.findByDb_IdAndUser_Id(dbId, currentUser.getId())
@@ -81,107 +157,207 @@ public class BackupServiceImpl implements BackupService {
         }
         Db db = dbRepository.findById(dbId)
                 .orElseThrow(() -> new ResourceNotFoundException("Database không tồn tại."));
-        Path tempFile = null;
-        try {
-            Files.createDirectories(Paths.get(tempDir));
-
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String fileName = String.format("%s_%s.sql", db.getName(), timestamp);
-            String s3Key = String.format("backups/%s/%s", db.getName(), fileName);
-
-            tempFile = Paths.get(tempDir, fileName);
-
-            String host = extractHostname(mariadbUrl);
-            Integer port = extractPort(mariadbUrl);
+        if (compression == null) {
+            compression = defaultCompression;
+        }
+        int compressionLevel = level != null ? level : defaultCompressionLevel;
+        if (compression != BackupCompression.NONE &&
+                (compressionLevel < compression.getMinLevel() || compressionLevel > compression.getMaxLevel())) {
+            throw new BadRequestException(String.format("Mức nén %s phải trong khoảng %d-%d.",
+                    compression, compression.getMinLevel(), compression.getMaxLevel()));
+        }
+        if (format == null) {
+            format = defaultFormat;
+        }
 
+        BackupJob job = backupJobRunner.submit(BackupJob.builder()
+                .db(db)
+                .user(currentUser)
+                .type(BackupJobType.BACKUP.name())
+                .description(description)
+                .compression(compression.name())
+                .compressionLevel(compressionLevel)
+                .format(format.name())
+                .build());
+        return backupJobService.toDTO(job);
+    }
 
-            ProcessBuilder pb = new ProcessBuilder(
-                    "mysqldump",
-                    "-h", host,
-                    "-P", String.valueOf(port),
-                    "-u", mariadbUsername,
-                    "-p" + mariadbPassword,
+    /**
+     * Chạy trên thread của {@link BackupJobRunner}, job đã được load kèm db/user.
+     */
+    private BackupDTO runBackupJob(BackupJob job, JobProgress progress) {
+        Db db = job.getDb();
+        // Job theo lịch có thể không chỉ định, khi đó dùng cấu hình mặc định
+        BackupCompression compression = job.getCompression() != null
+                ? BackupCompression.of(job.getCompression()) : defaultCompression;
+        int compressionLevel = job.getCompressionLevel() != null ? job.getCompressionLevel() : defaultCompressionLevel;
+        BackupFormat format = job.getFormat() != null ? BackupFormat.of(job.getFormat()) : defaultFormat;
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String baseName = String.format("%s_%s", db.getName(), timestamp);
+        try {
+            Backup.BackupBuilder backup = Backup.builder()
+                    .db(db)
+                    .user(job.getUser())
+                    .compression(compression.name())
+                    .format(format.name())
+                    .scheduled(Boolean.TRUE.equals(job.getScheduled()))
+                    .description(job.getDescription());
+
+            // Lỗi ở bất kỳ bước nào trước khi lưu record thì xóa các object đã upload, không để lại object mồ côi
+            if (format == BackupFormat.CHUNKED) {
+                String prefix = String.format("backups/%s/%s/", db.getName(), baseName);
+                try {
+                    BackupManifest manifest = parallelDumpEngine.dump(db, prefix, compression, compressionLevel, progress);
+                    backup.fileName(baseName)
+                            .s3Key(prefix + MANIFEST_FILE)
+                            .fileSize(manifest.totalBytes())
+                            .uncompressedSize(manifest.totalUncompressedBytes())
+                            .sha256(manifest.checksum());
+                    if (manifest.binlog() != null) {
+                        backup.binlogFile(manifest.binlog().file())
+                                .binlogPosition(manifest.binlog().position())
+                                .binlogGtid(manifest.binlog().gtid());
+                    }
+                    return saveBackup(job, backup);
+                } catch (Exception e) {
+                    discardUploaded(e, () -> s3AsyncTransfer.deletePrefix(prefix));
+                    throw e;
+                }
+            } else if (format == BackupFormat.DEDUP) {
+                // Chỉ upload chunk chưa có, backup chỉ sở hữu manifest (chunk thừa được GC).
+                // Giữ lock kho chunk tới khi lưu record để GC không xóa chunk được dùng lại
+                String s3Key = String.format("backups/%s/%s/%s", db.getName(), baseName, MANIFEST_FILE);
+                return dedupChunkStore.withLock(db.getId(), () -> {
+                    DedupManifest manifest = runDedupDump(db, compression, compressionLevel, progress);
+                    try {
+                        s3AsyncTransfer.upload(s3Key, "application/json",
+                                new ByteArrayInputStream(objectMapper.writeValueAsBytes(manifest)));
+                        backup.fileName(baseName)
+                                .s3Key(s3Key)
+                                .fileSize(manifest.totalBytes())
+                                .uncompressedSize(manifest.totalUncompressedBytes())
+                                .sha256(manifest.checksum());
+                        return saveBackup(job, backup);
+                    } catch (Exception e) {
+                        discardUploaded(e, () -> s3AsyncTransfer.delete(s3Key));
+                        throw e;
+                    }
+                });
+            } else {
+                String fileName = baseName + compression.getExtension();
+                String s3Key = String.format("backups/%s/%s", db.getName(), fileName);
+                DumpResult result = runMysqldump(db, s3Key, compression, compressionLevel, progress);
+                try {
+                    backup.fileName(fileName)
+                            .s3Key(s3Key)
+                            .fileSize(result.fileSize())
+                            .uncompressedSize(result.uncompressedSize())
+                            .sha256(result.sha256());
+                    return saveBackup(job, backup);
+                } catch (Exception e) {
+                    discardUploaded(e, () -> s3AsyncTransfer.delete(s3Key));
+                    throw e;
+                }
+            }
 
-                    "--skip-column-statistics",
-                    "--single-transaction",
-                    "--routines",
-                    "--triggers",
-                    "--events",
-                    "--add-drop-table",
-                    "--complete-insert",
-                    "--hex-blob",
-                    "--default-character-set=utf8mb4",
+        } catch (Exception e) {
+            throw new RuntimeException("Không thể tạo backup: " + e.getMessage());
+        }
+    }
 
-                    db.getName()
-            );
+    private BackupDTO saveBackup(BackupJob job, Backup.BackupBuilder backup) {
+        Backup saved = backupRepository.save(backup.build());
+        job.setBackup(saved);
+        return toDTO(saved);
+    }
 
-            Map<String, String> env = pb.environment();
-            env.put("MYSQL_PWD", mariadbPassword);
+    @FunctionalInterface
+    private interface S3Cleanup {
+        void run() throws IOException;
+    }
 
-            pb.redirectOutput(tempFile.toFile());
-            pb.redirectErrorStream(false);
+    /**
+     * Xóa object của backup lỗi; lỗi khi xóa được gắn vào lỗi gốc thay vì che mất nó.
+     */
+    private static void discardUploaded(Exception cause, S3Cleanup cleanup) {
+        try {
+            cleanup.run();
+        } catch (IOException | RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
 
-            Process process = pb.start();
+    private record DumpResult(long fileSize, long uncompressedSize, String sha256) {
+    }
 
-            StringBuilder errorOutput = new StringBuilder();
-            try (BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(process.getErrorStream()))) {
-                String line;
-                while ((line = errorReader.readLine()) != null) {
-                    errorOutput.append(line).append("\n");
-                }
+    private DumpResult runMysqldump(Db db, String s3Key, BackupCompression compression, int compressionLevel,
+                                    JobProgress progress) throws IOException {
+        Process process = startMysqldump(db);
+        try {
+            // stdout được upload thẳng lên S3 theo từng part trong lúc mysqldump vẫn chạy,
+            // stderr phải đọc song song để process không bị block khi buffer đầy
+            // Nén ngay trong stream (mysqldump -> codec -> S3), không cần file trung gian
+            progress.setPhase("DUMP");
+            MessageDigest digest = sha256();
+            try (CompressingInputStream dumpStream = new CompressingInputStream(
+                    progress.track(new ProcessInputStream(process, "mysqldump")), compression, compressionLevel)) {
+                long fileSize = s3AsyncTransfer.upload(s3Key, compression.getContentType(),
+                        new DigestInputStream(dumpStream, digest));
+                return new DumpResult(fileSize, dumpStream.getUncompressedBytes(), HexFormat.of().formatHex(digest.digest()));
             }
-
-            int exitCode = process.waitFor();
-
-            if (exitCode != 0) {
-                String errorLog = errorOutput.toString();
-                if (errorLog.isEmpty()) {
-                    errorLog = "No error output";
-                }
-                throw new RuntimeException("mysqldump failed with exit code: " + exitCode +
-                        "\nError: " + errorLog);
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
             }
+        }
+    }
 
-            if (!Files.exists(tempFile) || Files.size(tempFile) == 0) {
-                throw new RuntimeException("Backup file not created or empty");
+    private DedupManifest runDedupDump(Db db, BackupCompression compression, int compressionLevel,
+                                       JobProgress progress) throws IOException {
+        Process process = startMysqldump(db);
+        try {
+            progress.setPhase("DUMP");
+            try (InputStream dumpStream = progress.track(new ProcessInputStream(process, "mysqldump"))) {
+                return dedupChunkStore.store(db.getName(), dumpStream, compression, compressionLevel, progress);
             }
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
 
-            long fileSize = Files.size(tempFile);
-
-            PutObjectRequest putRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(s3Key)
-                    .contentType("application/sql")
-                    .build();
-
-            s3Client.putObject(putRequest, RequestBody.fromFile(tempFile));
-
-            // Lưu backup
-            Backup backup = backupRepository.save(Backup.builder()
-                    .db(db)
-                    .user(currentUser)
-                    .fileName(fileName)
-                    .s3Key(s3Key)
-                    .fileSize(fileSize)
-                    .description(description)
-                    .build());
+    private Process startMysqldump(Db db) throws IOException {
+        String host = extractHostname(mariadbUrl);
+        Integer port = extractPort(mariadbUrl);
+
+
+        ProcessBuilder pb = new ProcessBuilder(
+                "mysqldump",
+                "-h", host,
+                "-P", String.valueOf(port),
+                "-u", mariadbUsername,
+                "-p" + mariadbPassword,
+
+                "--skip-column-statistics",
+                "--single-transaction",
+                "--routines",
+                "--triggers",
+                "--events",
+                "--add-drop-table",
+                "--complete-insert",
+                "--hex-blob",
+                "--default-character-set=utf8mb4",
+
+                db.getName()
+        );
 
+        Map<String, String> env = pb.environment();
+        env.put("MYSQL_PWD", mariadbPassword);
 
-            return toDTO(backup);
+        pb.redirectErrorStream(false);
 
-        } catch (Exception e) {
-            throw new RuntimeException("Không thể tạo backup: " + e.getMessage());
-        } finally {
-            // Xóa file temp
-            if (tempFile != null) {
-                try {
-                    Files.deleteIfExists(tempFile);
-                } catch (Exception e) {
-                    throw new RuntimeException("Lỗi xóa temp file: " + e.getMessage());
-                }
-            }
-        }
+        return pb.start();
     }
 
     @Override
@@ -199,7 +375,7 @@ public class BackupServiceImpl implements BackupService {
     }
 
     @Override
-    public Resource downloadBackup(Long backupId) {
+    public BackupDownload downloadBackup(Long backupId) {
         User currentUser = userRepository.findByUsername(SecurityUtils.getUsername())
                 .orElseThrow(() -> new UnauthorizedException("Bạn cần đăng nhập."));
 
@@ -211,18 +387,138 @@ public class BackupServiceImpl implements BackupService {
                 .orElseThrow(() -> new UnauthorizedException("Bạn không có quyền download backup này."));
 
         try {
-            // Download từ S3
-            GetObjectRequest getRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(backup.getS3Key())
+            // File download là các byte đang lưu (đã nén), Range được chuyển thành GET có Range tới từng object
+            List<SegmentedS3InputStream.Segment> segments = getStoredObjects(backup);
+            long length = segments.stream().mapToLong(SegmentedS3InputStream.Segment::length).sum();
+            BackupCompression compression = BackupCompression.of(backup.getCompression());
+            String fileName = BackupFormat.of(backup.getFormat()) == BackupFormat.SQL
+                    ? backup.getFileName() : backup.getFileName() + compression.getExtension();
+            String eTag = backup.getSha256() != null ? backup.getSha256() : "backup-" + backup.getId() + "-" + length;
+
+            return BackupDownload.builder()
+                    .fileName(fileName)
+                    .contentType(compression.getContentType())
+                    .length(length)
+                    .eTag("\"" + eTag + "\"")
+                    .sha256(fileSha256(backup))
+                    .opener((start, end) -> new SegmentedS3InputStream(s3AsyncTransfer::open, segments, start, end))
                     .build();
 
-            InputStream inputStream = s3Client.getObject(getRequest);
+        } catch (S3Exception e) {
+            throw new ResourceNotFoundException("File backup không tồn tại trên S3.");
+        } catch (IOException e) {
+            throw new RuntimeException("Không thể đọc file backup: " + e.getMessage());
+        }
+    }
 
-            return new InputStreamResource(inputStream);
+    @Override
+    public PresignedDownloadDTO getDownloadUrl(Long dbId, Long backupId) {
+        User currentUser = getCurrentUser();
+        Backup backup = backupRepository.findById(backupId)
+                .orElseThrow(() -> new ResourceNotFoundException("Backup không tồn tại."));
+        if (!backup.getDb().getId().equals(dbId)) {
+            throw new ResourceNotFoundException("Backup không tồn tại.");
+        }
+        dbMemberRepository.findByDb_IdAndUser_Id(dbId, currentUser.getId())
+                .orElseThrow(() -> new UnauthorizedException("Bạn không có quyền download backup này."));
 
+        try {
+            List<SegmentedS3InputStream.Segment> segments = getStoredObjects(backup);
+            BackupCompression compression = BackupCompression.of(backup.getCompression());
+            String fileName = BackupFormat.of(backup.getFormat()) == BackupFormat.SQL
+                    ? backup.getFileName() : backup.getFileName() + compression.getExtension();
+            Duration ttl = Duration.ofMinutes(downloadTtlMinutes);
+            // Chỉ đặt tên file khi backup là một object, các phần của backup nhiều object do client tự ghép
+            String disposition = segments.size() == 1
+                    ? ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString() : null;
+
+            List<PresignedDownloadDTO.Part> parts = segments.stream()
+                    .map(segment -> PresignedDownloadDTO.Part.builder()
+                            .url(s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                                    .signatureDuration(ttl)
+                                    .getObjectRequest(GetObjectRequest.builder()
+                                            .bucket(bucketName)
+                                            .key(segment.key())
+                                            .responseContentDisposition(disposition)
+                                            .build())
+                                    .build()).url().toString())
+                            .bytes(segment.length())
+                            .sha256(segment.sha256())
+                            .contentSha256(segment.contentSha256())
+                            .build())
+                    .toList();
+
+            return PresignedDownloadDTO.builder()
+                    .backupId(backup.getId())
+                    .fileName(fileName)
+                    .fileSize(segments.stream().mapToLong(SegmentedS3InputStream.Segment::length).sum())
+                    .sha256(fileSha256(backup))
+                    .expiresAt(Instant.now().plus(ttl))
+                    .parts(parts)
+                    .build();
         } catch (S3Exception e) {
             throw new ResourceNotFoundException("File backup không tồn tại trên S3.");
+        } catch (IOException e) {
+            throw new RuntimeException("Không thể đọc file backup: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Các object của backup theo thứ tự ghép thành file download.
+     */
+    private List<SegmentedS3InputStream.Segment> getStoredObjects(Backup backup) throws IOException {
+        return switch (BackupFormat.of(backup.getFormat())) {
+            case CHUNKED -> segmentsOf(readManifest(backup));
+            case DEDUP -> segmentsOf(dedupChunkStore.readManifest(backup.getS3Key()));
+            case SQL -> {
+                // Backup cũ không lưu kích thước
+                long size = backup.getFileSize() != null ? backup.getFileSize() : s3Client.headObject(HeadObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(backup.getS3Key())
+                        .build()).contentLength();
+                yield List.of(new SegmentedS3InputStream.Segment(backup.getS3Key(), size, backup.getSha256(), null));
+            }
+        };
+    }
+
+    /**
+     * SHA-256 của file download: chỉ backup SQL có. CHUNKED/DEDUP được kiểm tra theo SHA-256 của từng part
+     * (trả về trong URL tải trực tiếp, và được kiểm tra khi download qua server).
+     */
+    private static String fileSha256(Backup backup) {
+        return BackupFormat.of(backup.getFormat()) == BackupFormat.SQL ? backup.getSha256() : null;
+    }
+
+    private static List<SegmentedS3InputStream.Segment> segmentsOf(BackupManifest manifest) {
+        List<SegmentedS3InputStream.Segment> segments = new ArrayList<>();
+        segments.add(segmentOf(manifest.schema()));
+        for (BackupManifest.TableEntry table : manifest.tables()) {
+            for (BackupManifest.Part chunk : table.chunks()) {
+                segments.add(segmentOf(chunk));
+            }
+        }
+        segments.add(segmentOf(manifest.post()));
+        return segments;
+    }
+
+    private static SegmentedS3InputStream.Segment segmentOf(BackupManifest.Part part) {
+        return new SegmentedS3InputStream.Segment(part.key(), part.bytes(), part.sha256(), null);
+    }
+
+    private static List<SegmentedS3InputStream.Segment> segmentsOf(DedupManifest manifest) {
+        BackupCompression compression = BackupCompression.of(manifest.compression());
+        return manifest.chunks().stream()
+                .map(chunk -> new SegmentedS3InputStream.Segment(
+                        DedupChunkStore.chunkKey(manifest.database(), chunk.hash(), compression), chunk.storedBytes(),
+                        null, chunk.hash()))
+                .toList();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
@@ -247,15 +543,22 @@ public class BackupServiceImpl implements BackupService {
 
         try {
             // Xóa file trên S3
-            DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(backup.getS3Key())
-                    .build();
-
-            s3Client.deleteObject(deleteRequest);
+            if (backup.getBinlogFile() != null) {
+                s3AsyncTransfer.deletePrefix(BinlogArchiver.segmentPrefix(backup));
+            }
+            BackupFormat format = BackupFormat.of(backup.getFormat());
+            if (format == BackupFormat.CHUNKED) {
+                s3AsyncTransfer.deletePrefix(chunkedPrefix(backup));
+            } else {
+                s3AsyncTransfer.delete(backup.getS3Key());
+            }
 
             // Xóa record
             backupRepository.delete(backup);
+            if (format == BackupFormat.DEDUP) {
+                // Query tự flush nên backup vừa xóa không còn được tính là tham chiếu
+                collectChunkGarbage(backup.getDb());
+            }
         } catch (Exception e) {
             throw new RuntimeException("Không thể xóa backup: " + e.getMessage());
         }
@@ -264,7 +567,7 @@ public class BackupServiceImpl implements BackupService {
     @Override
     @Transactional
     @AuditLog(action = "RESTORE_BACKUP", description = "Restored database from backup")
-    public void restoreBackup(Long dbId, Long backupId) {
+    public BackupJobDTO restoreBackup(Long dbId, Long backupId, boolean applyBinlog) {
         User currentUser = getCurrentUser();
 
         // Lấy backup info
@@ -276,32 +579,244 @@ public class BackupServiceImpl implements BackupService {
         // Check permission (chỉ OWNER/ADMIN)
         checkPermission(db.getId(), currentUser, DbRole.ADMIN);
 
-        DbUser dbUser = getDbUser(currentUser.getId(), db.getId());
+        getDbUser(currentUser.getId(), db.getId());
+        if (applyBinlog && backup.getBinlogFile() == null) {
+            throw new BadRequestException("Backup này không có vị trí binlog, không thể restore incremental.");
+        }
 
-        try {
-            // ✅ DOWNLOAD FILE TỪ S3 DÙNG S3Client CÓ SẴN
-            GetObjectRequest getRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(backup.getS3Key())
-                    .build();
+        BackupJob job = backupJobRunner.submit(BackupJob.builder()
+                .db(db)
+                .user(currentUser)
+                .backup(backup)
+                .type(BackupJobType.RESTORE.name())
+                .applyBinlog(applyBinlog)
+                .bytesTotal(backup.getFileSize())
+                .build());
+        return backupJobService.toDTO(job);
+    }
+
+    @Override
+    @Transactional
+    @AuditLog(action = "RESTORE_POINT_IN_TIME", description = "Restored database to a point in time")
+    public BackupJobDTO restoreToPointInTime(Long dbId, Instant to) {
+        User currentUser = getCurrentUser();
+        Db db = dbRepository.findById(dbId)
+                .orElseThrow(() -> new ResourceNotFoundException("Database không tồn tại"));
+
+        checkPermission(dbId, currentUser, DbRole.ADMIN);
+        getDbUser(currentUser.getId(), dbId);
+
+        if (to == null || to.isAfter(Instant.now())) {
+            throw new BadRequestException("Thời điểm restore phải ở quá khứ.");
+        }
+        Backup backup = backupRepository.findFirstByDb_IdAndBinlogFileNotNullAndCreatedAtLessThanEqualOrderByCreatedAtDesc(dbId, to)
+                .orElseThrow(() -> new BadRequestException("Không có backup full (có vị trí binlog) nào trước thời điểm " + to));
+
+        BackupJob job = backupJobRunner.submit(BackupJob.builder()
+                .db(db)
+                .user(currentUser)
+                .backup(backup)
+                .type(BackupJobType.RESTORE.name())
+                .applyBinlog(true)
+                .restoreTo(to)
+                .bytesTotal(backup.getFileSize())
+                .build());
+        return backupJobService.toDTO(job);
+    }
+
+    @Override
+    @Transactional
+    @AuditLog(action = "RESTORE_TO_NEW_DB", description = "Restored backup into a new database")
+    public BackupJobDTO restoreToNewDb(Long dbId, Long backupId, String name, boolean swap) {
+        User currentUser = getCurrentUser();
+        Backup backup = backupRepository.findById(backupId)
+                .orElseThrow(() -> new ResourceNotFoundException("Backup không tồn tại"));
+        Db db = backup.getDb();
+        if (!db.getId().equals(dbId)) {
+            throw new ResourceNotFoundException("Backup không tồn tại");
+        }
+
+        checkPermission(db.getId(), currentUser, DbRole.ADMIN);
+        if (swap) {
+            getDbUser(currentUser.getId(), db.getId());
+            // Routine, trigger, view phải tạo lại trên database gốc sau khi đổi bảng: cần phần post riêng
+            if (BackupFormat.of(backup.getFormat()) != BackupFormat.CHUNKED) {
+                throw new BadRequestException("Chỉ backup dạng CHUNKED mới restore và thay thế được.");
+            }
+        }
+        if (name == null || name.isBlank()) {
+            name = db.getName() + "_restore_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        }
 
-            InputStream inputStream = s3Client.getObject(getRequest);
+        // Tạo database, user MariaDB và quyền OWNER như khi tạo database mới;
+        // transaction này rollback (ví dụ submit job lỗi) thì createDb tự xóa database vừa tạo
+        DbDTO created = dbService.createDb(DbDTO.builder()
+                .name(name)
+                .projectId(db.getProject().getId())
+                .build());
+        Db target = dbRepository.findById(created.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Database không tồn tại"));
 
-            // Restore vào database
-            executeSqlFile(db, dbUser, inputStream);
+        BackupJob job = backupJobRunner.submit(BackupJob.builder()
+                .db(db)
+                .targetDb(target)
+                .user(currentUser)
+                .backup(backup)
+                .type(BackupJobType.RESTORE.name())
+                .swap(swap)
+                .bytesTotal(backup.getFileSize())
+                .build());
+        return backupJobService.toDTO(job);
+    }
 
+    /**
+     * Segment cần replay: tất cả, hoặc tới segment bao phủ {@code restoreTo}.
+     * Nếu binlog đã lưu chưa tới thời điểm đó thì lưu thêm phần mới nhất trước khi restore.
+     */
+    private List<BinlogSegment> getSegments(BackupJob job, Backup backup) throws Exception {
+        if (!Boolean.TRUE.equals(job.getApplyBinlog())) {
+            return List.of();
+        }
+        List<BinlogSegment> segments = binlogSegmentRepository.findByBackup_IdOrderByIdAsc(backup.getId());
+        Instant to = job.getRestoreTo();
+        if (to == null) {
+            BinlogArchiver.checkContiguous(backup, segments);
+            return segments;
+        }
+        Instant coveredUntil = segments.isEmpty() ? backup.getCreatedAt() : segments.getLast().getEndedAt();
+        if (coveredUntil.isBefore(to)) {
+            binlogArchiver.archive(job.getDb().getId());
+            segments = binlogSegmentRepository.findByBackup_IdOrderByIdAsc(backup.getId());
+            coveredUntil = segments.isEmpty() ? backup.getCreatedAt() : segments.getLast().getEndedAt();
+            if (coveredUntil.isBefore(to)) {
+                throw new BadRequestException("Binlog chỉ có tới " + coveredUntil + ", không thể restore tới " + to);
+            }
+        }
+        segments = segments.stream()
+                .filter(segment -> segment.getStartedAt() == null || segment.getStartedAt().isBefore(to))
+                .toList();
+        BinlogArchiver.checkContiguous(backup, segments);
+        return segments;
+    }
+
+    private RestoreReportDTO runRestoreJob(BackupJob job, JobProgress progress) throws Exception {
+        Backup backup = job.getBackup();
+        if (backup == null) {
+            throw new ResourceNotFoundException("Backup không tồn tại");
+        }
+        Long backupId = backup.getId();
+        // Restore vào database mới nếu có, database gốc giữ nguyên tới bước đổi bảng
+        Db source = job.getDb();
+        Db db = job.getTargetDb() != null ? job.getTargetDb() : source;
+        DbUser dbUser = getDbUser(job.getUser().getId(), db.getId());
+        List<BinlogSegment> segments = getSegments(job, backup);
+        // Tiến độ tính theo số byte (đã nén) tải từ S3
+        progress.setBytesTotal((backup.getFileSize() != null ? backup.getFileSize() : 0)
+                + segments.stream().mapToLong(segment -> segment.getFileSize() != null ? segment.getFileSize() : 0).sum());
+
+        long start = System.currentTimeMillis();
+        try {
+            BackupFormat format = BackupFormat.of(backup.getFormat());
+            RestoreReportDTO report;
+            if (format == BackupFormat.CHUNKED) {
+                // Nạp song song các chunk theo manifest
+                BackupCompression compression = BackupCompression.of(backup.getCompression());
+                try {
+                    report = parallelRestoreEngine.restore(db, dbUser, readManifest(backup),
+                            key -> openObject(key, compression, progress), progress);
+                } finally {
+                    rowCountCache.invalidateDb(db.getId());
+                    schemaMetadataCache.invalidateDb(db.getId());
+                }
+            } else {
+                // Các phần được tải và giải nén lần lượt từ S3 trong lúc restore
+                progress.setPhase("RESTORE");
+                SqlScriptExecutor.ScriptResult result = executeSqlParts(db, dbUser, getSqlParts(backup, progress), progress);
+                report = RestoreReportDTO.builder()
+                        .threads(1)
+                        .statementsExecuted(result.executed())
+                        .statementsFailed(result.failed())
+                        .errors(result.errors())
+                        .build();
+            }
+            if (!segments.isEmpty()) {
+                // Incremental: replay binlog từ vị trí của backup full
+                progress.setPhase("BINLOG");
+                try {
+                    SqlScriptExecutor.ScriptResult replayed = binlogArchiver.replay(db, segments, job.getRestoreTo(), progress);
+                    // Gộp cả lỗi như các phần restore khác, số lỗi báo cáo vẫn bị giới hạn như cũ
+                    SqlScriptExecutor.ScriptResult merged = new SqlScriptExecutor.ScriptResult(
+                            report.getStatementsExecuted(), report.getStatementsFailed(),
+                            report.getErrors() != null ? report.getErrors() : List.of()).plus(replayed);
+                    report.setStatementsExecuted(merged.executed());
+                    report.setStatementsFailed(merged.failed());
+                    report.setErrors(merged.errors());
+                } finally {
+                    rowCountCache.invalidateDb(db.getId());
+                    schemaMetadataCache.invalidateDb(db.getId());
+                }
+                report.setBinlogSegments(segments.size());
+                report.setRestoredTo(job.getRestoreTo());
+            }
+            if (job.getTargetDb() != null) {
+                report.setTargetDbId(db.getId());
+                report.setTargetDbName(db.getName());
+                if (Boolean.TRUE.equals(job.getSwap())) {
+                    progress.setPhase("SWAP");
+                    report.setSwappedTables(swapIntoSource(job, db, backup, progress));
+                }
+            }
+            report.setBackupId(backupId);
+            report.setFormat(format.name());
+            report.setElapsedMs(System.currentTimeMillis() - start);
+            return report;
 
         } catch (S3Exception e) {
             throw new ResourceNotFoundException("File backup không tồn tại trên S3");
         } catch (Exception e) {
-            throw new RuntimeException("Restore thất bại: " + e.getMessage());
+            throw new RuntimeException("Restore thất bại: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Đổi bảng giữa database gốc và database vừa restore bằng một lệnh RENAME TABLE,
+     * rồi chạy lại phần post của backup (view, routine, trigger, event) trên database gốc.
+     * Database mới giữ lại bảng cũ để rollback. Trả về số bảng đã đổi/chuyển.
+     */
+    private int swapIntoSource(BackupJob job, Db target, Backup backup, JobProgress progress) throws Exception {
+        Db source = job.getDb();
+        DbUser dbUser = getDbUser(job.getUser().getId(), source.getId());
+        BackupManifest manifest = readManifest(backup);
+        BackupCompression compression = BackupCompression.of(backup.getCompression());
+        try {
+            SchemaSwapper.SwapResult swapped = schemaSwapper.swap(source, target);
+            tenantDataSourceRegistry.executeIsolated(source, dbUser, TenantDataSourceRegistry.ConnectionProfile.MULTI_QUERIES,
+                    (ConnectionCallback<Void>) connection -> {
+                JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                template.execute("SET FOREIGN_KEY_CHECKS = 0");
+                sqlScriptExecutor.dropProgramObjects(template, source.getName());
+                try (InputStream inputStream = openObject(manifest.post().key(), compression, progress)) {
+                    sqlScriptExecutor.executeStatements(template, inputStream, progress);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+            return swapped.swapped() + swapped.moved();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            rowCountCache.invalidateDb(source.getId());
+            schemaMetadataCache.invalidateDb(source.getId());
+            rowCountCache.invalidateDb(target.getId());
+            schemaMetadataCache.invalidateDb(target.getId());
         }
     }
 
     @Override
     @Transactional
     @AuditLog(action = "IMPORT_SQL", description = "Imported SQL dump file")
-    public void importSqlDump(Long dbId, MultipartFile dumpFile) {
+    public BackupJobDTO importSqlDump(Long dbId, MultipartFile dumpFile) {
         validateDumpFile(dumpFile);
 
         User currentUser = getCurrentUser();
@@ -310,186 +825,265 @@ public class BackupServiceImpl implements BackupService {
 
         checkPermission(dbId, currentUser, DbRole.READWRITE);
 
-        DbUser dbUser = getDbUser(currentUser.getId(), dbId);
+        getDbUser(currentUser.getId(), dbId);
 
+        // File upload chỉ tồn tại trong request, lưu tạm lên S3 để job đọc lại; job xong thì bị xóa
+        String stagingKey = String.format("imports/%s/%s.sql", db.getName(), UUID.randomUUID());
+        long size;
         try (InputStream inputStream = dumpFile.getInputStream()) {
-            executeSqlFile(db, dbUser, inputStream);
-
-        } catch (Exception e) {
+            size = s3AsyncTransfer.upload(stagingKey, "application/sql", inputStream);
+        } catch (IOException e) {
             throw new RuntimeException("Import thất bại: " + e.getMessage(), e);
         }
-    }
 
-    private void validateDumpFile(MultipartFile dumpFile) {
-        if (dumpFile == null || dumpFile.isEmpty()) {
-            throw new BadRequestException("File dump không được để trống");
-        }
+        BackupJob job = backupJobRunner.submit(BackupJob.builder()
+                .db(db)
+                .user(currentUser)
+                .type(BackupJobType.IMPORT.name())
+                .stagingKey(stagingKey)
+                .bytesTotal(size)
+                .build());
+        return backupJobService.toDTO(job);
+    }
 
-        String originalFilename = dumpFile.getOriginalFilename();
-        if (originalFilename == null || !originalFilename.toLowerCase().endsWith(".sql")) {
+    @Override
+    @Transactional
+    public ImportUploadDTO startImportUpload(Long dbId, String fileName, Long size) {
+        if (fileName == null || !fileName.toLowerCase().endsWith(".sql")) {
             throw new BadRequestException("Chỉ chấp nhận file .sql");
         }
+        if (size == null || size <= 0 || size > MAX_UPLOAD_SIZE) {
+            throw new BadRequestException("Kích thước file không hợp lệ");
+        }
 
-        // Check file size (100MB)
-        long maxSize = 100 * 1024 * 1024L;
-        if (dumpFile.getSize() > maxSize) {
-            throw new BadRequestException("File không được vượt quá 100MB");
+        User currentUser = getCurrentUser();
+        Db db = dbRepository.findById(dbId)
+                .orElseThrow(() -> new ResourceNotFoundException("Database không tồn tại"));
+        checkPermission(dbId, currentUser, DbRole.READWRITE);
+        getDbUser(currentUser.getId(), dbId);
+
+        // Part đủ lớn để file không vượt quá số part tối đa của S3
+        long partSize = Math.max(Math.max((long) partSizeMb * 1024 * 1024, MIN_PART_SIZE),
+                (size + MAX_UPLOAD_PARTS - 1) / MAX_UPLOAD_PARTS);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+
+        String stagingKey = String.format("imports/%s/%s.sql", db.getName(), UUID.randomUUID());
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(stagingKey)
+                .contentType("application/sql")
+                .build()).uploadId();
+
+        BackupJob job = backupJobRunner.awaitUpload(BackupJob.builder()
+                .db(db)
+                .user(currentUser)
+                .type(BackupJobType.IMPORT.name())
+                .stagingKey(stagingKey)
+                .uploadId(uploadId)
+                .bytesTotal(size)
+                .build());
+
+        Duration ttl = Duration.ofMinutes(uploadTtlMinutes);
+        List<ImportUploadDTO.Part> parts = new ArrayList<>(partCount);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            parts.add(ImportUploadDTO.Part.builder()
+                    .partNumber(partNumber)
+                    .url(s3Presigner.presignUploadPart(UploadPartPresignRequest.builder()
+                            .signatureDuration(ttl)
+                            .uploadPartRequest(UploadPartRequest.builder()
+                                    .bucket(bucketName)
+                                    .key(stagingKey)
+                                    .uploadId(uploadId)
+                                    .partNumber(partNumber)
+                                    .build())
+                            .build()).url().toString())
+                    .build());
         }
+        return ImportUploadDTO.builder()
+                .jobId(job.getId())
+                .size(size)
+                .partSize(partSize)
+                .expiresAt(Instant.now().plus(ttl))
+                .parts(parts)
+                .build();
     }
 
-    private void executeSqlFile(Db db, DbUser dbUser, InputStream inputStream) throws IOException {
-        // ✅ CONNECT VÀO DATABASE CỤ THỂ
-        String url = String.format("jdbc:mariadb://%s:%d/%s?allowMultiQueries=true",
-                db.getHostname(), db.getPort(), db.getName());
-
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("org.mariadb.jdbc.Driver");
-        dataSource.setUrl(url);
-        dataSource.setUsername(dbUser.getUsername());
-        dataSource.setPassword(dbUser.getPassword());
-
-        JdbcTemplate template = new JdbcTemplate(dataSource);
-
-
-        template.execute("SET FOREIGN_KEY_CHECKS = 0");
-
-        dropAllDatabaseObjects(template, db.getName());
-
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(inputStream, StandardCharsets.UTF_8)
-        );
-
-        StringBuilder sqlBuilder = new StringBuilder();
-        String line;
-        int executedStatements = 0;
-        int failedStatements = 0;
-
-        while ((line = reader.readLine()) != null) {
-            line = line.trim();
-
-            // Skip comments và empty lines
-            if (line.isEmpty() || line.startsWith("--")) {
-                continue;
-            }
+    @Override
+    @Transactional
+    @AuditLog(action = "IMPORT_SQL", description = "Imported SQL dump file")
+    public BackupJobDTO completeImportUpload(Long dbId, Long jobId) {
+        User currentUser = getCurrentUser();
+        BackupJob job = backupJobRepository.findByIdAndDb_Id(jobId, dbId)
+                .orElseThrow(() -> new ResourceNotFoundException("Job không tồn tại"));
+        if (job.getUser() == null || !job.getUser().getId().equals(currentUser.getId())) {
+            throw new UnauthorizedException("Chỉ người tạo upload mới có quyền hoàn tất.");
+        }
+        if (!BackupJobStatus.AWAITING_UPLOAD.name().equals(job.getStatus())) {
+            throw new BadRequestException("Job không còn chờ upload.");
+        }
 
-            // Xử lý /*!... */
-            if (line.startsWith("/*!")) {
-                String processed = line.replaceAll("/\\*!\\d+\\s*", "").replaceAll("\\s*\\*/;?$", ";");
-                if (processed.trim().isEmpty() || processed.trim().equals(";")) {
-                    continue;
-                }
-                line = processed;
+        long size;
+        try {
+            // ETag của các part lấy từ S3, client không cần gửi lại
+            List<CompletedPart> parts = new ArrayList<>();
+            s3Client.listPartsPaginator(ListPartsRequest.builder()
+                    .bucket(bucketName)
+                    .key(job.getStagingKey())
+                    .uploadId(job.getUploadId())
+                    .build()).parts().forEach(part -> parts.add(CompletedPart.builder()
+                    .partNumber(part.partNumber())
+                    .eTag(part.eTag())
+                    .build()));
+            if (parts.isEmpty()) {
+                throw new BadRequestException("Chưa có phần nào được upload.");
             }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(job.getStagingKey())
+                    .uploadId(job.getUploadId())
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+            size = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(job.getStagingKey())
+                    .build()).contentLength();
+        } catch (S3Exception e) {
+            throw new BadRequestException("Upload chưa hoàn tất: " + e.getMessage());
+        }
 
-            sqlBuilder.append(line).append(" ");
-
-            if (line.endsWith(";")) {
-                String sql = sqlBuilder.toString().trim();
+        // Job có thể vừa bị hủy/hết hạn trong lúc hoàn tất upload
+        if (!backupJobRunner.releaseUpload(jobId, size)) {
+            throw new BadRequestException("Job không còn chờ upload.");
+        }
+        return backupJobService.toDTO(backupJobRepository.findById(jobId).orElse(job));
+    }
 
-                try {
-                    template.execute(sql);
-                    executedStatements++;
-                } catch (Exception e) {
-                    failedStatements++;
-                }
+    private SqlScriptExecutor.ScriptResult runImportJob(BackupJob job, JobProgress progress) {
+        Db db = job.getDb();
+        DbUser dbUser = getDbUser(job.getUser().getId(), db.getId());
+        if (job.getBytesTotal() != null) {
+            progress.setBytesTotal(job.getBytesTotal());
+        }
+        progress.setPhase("IMPORT");
 
-                sqlBuilder.setLength(0);
+        try (InputStream inputStream = openObject(job.getStagingKey(), BackupCompression.NONE, progress)) {
+            SqlScriptExecutor.ScriptResult result = executeSqlFile(db, dbUser, inputStream, progress);
+            if (result.failed() > 0) {
+                log.warn("Import vào {}: {} câu lệnh lỗi / {} thành công", db.getName(), result.failed(), result.executed());
             }
+            return result;
+        } catch (Exception e) {
+            throw new RuntimeException("Import thất bại: " + e.getMessage(), e);
         }
-        template.execute("SET FOREIGN_KEY_CHECKS = 1");
-        reader.close();
-        List<String> newTables = template.queryForList("SHOW TABLES", String.class);
     }
 
+    private void validateDumpFile(MultipartFile dumpFile) {
+        if (dumpFile == null || dumpFile.isEmpty()) {
+            throw new BadRequestException("File dump không được để trống");
+        }
 
-    private JdbcTemplate createJdbcTemplate(Db db, DbUser dbUser) {
-        String url = String.format("jdbc:mariadb://%s:%d/%s?allowMultiQueries=true",
-                db.getHostname(), db.getPort(), db.getName());
-
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("org.mariadb.jdbc.Driver");
-        dataSource.setUrl(url);
-        dataSource.setUsername(dbUser.getUsername());
-        dataSource.setPassword(dbUser.getPassword());
+        String originalFilename = dumpFile.getOriginalFilename();
+        if (originalFilename == null || !originalFilename.toLowerCase().endsWith(".sql")) {
+            throw new BadRequestException("Chỉ chấp nhận file .sql");
+        }
+    }
 
-        return new JdbcTemplate(dataSource);
+    /**
+     * Một phần của file SQL, chỉ được mở khi tới lượt thực thi.
+     */
+    @FunctionalInterface
+    private interface SqlPart {
+        InputStream open() throws IOException;
     }
 
+    private SqlScriptExecutor.ScriptResult executeSqlFile(Db db, DbUser dbUser, InputStream inputStream,
+                                                          JobProgress progress) throws IOException {
+        return executeSqlParts(db, dbUser, List.of(() -> inputStream), progress);
+    }
 
-    private void dropAllDatabaseObjects(JdbcTemplate template, String dbName) {
+    private SqlScriptExecutor.ScriptResult executeSqlParts(Db db, DbUser dbUser, List<SqlPart> parts,
+                                                           JobProgress progress) throws IOException {
+        // Toàn bộ restore chạy trên 1 connection: SET FOREIGN_KEY_CHECKS và các lệnh SET trong dump
+        // chỉ có hiệu lực trong session, connection bị bỏ sau khi xong để không quay lại pool
         try {
-
-            List<String> tables = template.queryForList("SHOW TABLES", String.class);
-
-            for (String tableName : tables) {
-                try {
-                    template.execute("DROP TABLE IF EXISTS `" + tableName + "`");
-                } catch (Exception e) {
+            return tenantDataSourceRegistry.executeIsolated(db, dbUser, TenantDataSourceRegistry.ConnectionProfile.MULTI_QUERIES,
+                    (ConnectionCallback<SqlScriptExecutor.ScriptResult>) connection -> {
+                JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                template.execute("SET FOREIGN_KEY_CHECKS = 0");
+                sqlScriptExecutor.dropAllDatabaseObjects(template, db.getName());
+                SqlScriptExecutor.ScriptResult result = SqlScriptExecutor.ScriptResult.empty();
+                for (SqlPart part : parts) {
+                    try (InputStream inputStream = part.open()) {
+                        result = result.plus(sqlScriptExecutor.executeStatements(template, inputStream, progress));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
                 }
-            }
-
-            List<Map<String, Object>> procedures = template.queryForList(
-                    "SELECT ROUTINE_NAME FROM information_schema.ROUTINES " +
-                            "WHERE ROUTINE_SCHEMA = ? AND ROUTINE_TYPE = 'PROCEDURE'",
-                    dbName);
-
-
-            for (Map<String, Object> proc : procedures) {
-                String procName = (String) proc.get("ROUTINE_NAME");
-                try {
-                    template.execute("DROP PROCEDURE IF EXISTS `" + procName + "`");
-                } catch (Exception e) {
-                }
-            }
-
-            List<Map<String, Object>> functions = template.queryForList(
-                    "SELECT ROUTINE_NAME FROM information_schema.ROUTINES " +
-                            "WHERE ROUTINE_SCHEMA = ? AND ROUTINE_TYPE = 'FUNCTION'",
-                    dbName);
-
-
-            for (Map<String, Object> func : functions) {
-                String funcName = (String) func.get("ROUTINE_NAME");
-                try {
-                    template.execute("DROP FUNCTION IF EXISTS `" + funcName + "`");
-                } catch (Exception e) {
-                }
-            }
-
-            List<Map<String, Object>> triggers = template.queryForList(
-                    "SELECT TRIGGER_NAME FROM information_schema.TRIGGERS " +
-                            "WHERE TRIGGER_SCHEMA = ?",
-                    dbName);
+                return result;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            rowCountCache.invalidateDb(db.getId());
+            schemaMetadataCache.invalidateDb(db.getId());
+        }
+    }
 
+    /**
+     * Các phần SQL của backup theo thứ tự restore, đã giải nén.
+     * Backup SQL là một object, backup CHUNKED gồm schema, chunk dữ liệu và post theo manifest.
+     */
+    private List<SqlPart> getSqlParts(Backup backup, JobProgress progress) throws IOException {
+        BackupCompression compression = BackupCompression.of(backup.getCompression());
+        BackupFormat format = BackupFormat.of(backup.getFormat());
+        if (format == BackupFormat.DEDUP) {
+            // Một câu lệnh có thể nằm vắt qua hai chunk: các chunk phải đọc liền thành một stream
+            DedupManifest manifest = dedupChunkStore.readManifest(backup.getS3Key());
+            return List.of(() -> dedupChunkStore.open(manifest.database(), manifest, progress));
+        }
+        if (format != BackupFormat.CHUNKED) {
+            return List.of(() -> openObject(backup.getS3Key(), compression, progress));
+        }
 
-            for (Map<String, Object> trig : triggers) {
-                String trigName = (String) trig.get("TRIGGER_NAME");
-                try {
-                    template.execute("DROP TRIGGER IF EXISTS `" + trigName + "`");
-                } catch (Exception e) {
-                }
+        BackupManifest manifest = readManifest(backup);
+        List<SqlPart> parts = new ArrayList<>();
+        parts.add(() -> openObject(manifest.schema().key(), compression, progress));
+        for (BackupManifest.TableEntry table : manifest.tables()) {
+            for (BackupManifest.Part chunk : table.chunks()) {
+                parts.add(() -> openObject(chunk.key(), compression, progress));
             }
+        }
+        parts.add(() -> openObject(manifest.post().key(), compression, progress));
+        return parts;
+    }
 
-            List<Map<String, Object>> events = template.queryForList(
-                    "SELECT EVENT_NAME FROM information_schema.EVENTS " +
-                            "WHERE EVENT_SCHEMA = ?",
-                    dbName);
-
-
-            for (Map<String, Object> event : events) {
-                String eventName = (String) event.get("EVENT_NAME");
-                try {
-                    template.execute("DROP EVENT IF EXISTS `" + eventName + "`");
-                } catch (Exception e) {
-                }
-            }
+    private BackupManifest readManifest(Backup backup) throws IOException {
+        try (InputStream in = s3AsyncTransfer.open(backup.getS3Key())) {
+            return objectMapper.readValue(in, BackupManifest.class);
+        }
+    }
 
+    /**
+     * Mở object và giải nén; {@code progress} đếm số byte tải về (trước khi giải nén).
+     */
+    private InputStream openObject(String key, BackupCompression compression, JobProgress progress) throws IOException {
+        return CompressionUtils.decompress(progress.track(s3AsyncTransfer.open(key)), compression);
+    }
 
+    /**
+     * GC chunk DEDUP sau khi xóa backup; lỗi không làm hỏng thao tác xóa, chunk thừa được xóa ở lần sau.
+     */
+    private void collectChunkGarbage(Db db) {
+        try {
+            dedupChunkStore.collectGarbage(db.getId(), db.getName());
         } catch (Exception e) {
-            throw new RuntimeException("Cannot drop database objects: " + e.getMessage());
+            log.warn("Không thể GC chunk của {}: {}", db.getName(), e.getMessage());
         }
     }
 
+    static String chunkedPrefix(Backup backup) {
+        return backup.getS3Key().substring(0, backup.getS3Key().length() - MANIFEST_FILE.length());
+    }
 
     private void checkPermission(Long dbId, User user, DbRole minRole) {
         DbMember member = dbMemberRepository.findByDb_IdAndUser_Id(dbId, user.getId())
@@ -531,6 +1125,11 @@ public class BackupServiceImpl implements BackupService {
                 .description(backup.getDescription())
                 .fileName(backup.getFileName())
                 .fileSize(backup.getFileSize())
+                .compression(backup.getCompression())
+                .format(backup.getFormat())
+                .uncompressedSize(backup.getUncompressedSize())
+                .sha256(backup.getSha256())
+                .binlogGtid(backup.getBinlogGtid())
                 .createdAt(backup.getCreatedAt())
                 .build();
     }
@@ -0,0 +1,294 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.entity.Backup;
+import com.cloud_computing.mariadb.entity.BinlogSegment;
+import com.cloud_computing.mariadb.entity.Db;
+import com.cloud_computing.mariadb.entity.enums.BackupCompression;
+import com.cloud_computing.mariadb.repository.BackupRepository;
+import com.cloud_computing.mariadb.repository.BinlogSegmentRepository;
+import com.cloud_computing.mariadb.util.CompressingInputStream;
+import com.cloud_computing.mariadb.util.CompressionUtils;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Backup incremental: định kỳ đọc binlog từ vị trí của backup full gần nhất (hoặc segment trước)
+ * bằng {@code mysqlbinlog --read-from-remote-server}, lọc theo database và lưu thành segment trên S3.
+ * Restore = backup full + replay các segment theo thứ tự.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BinlogArchiver {
+    final BackupRepository backupRepository;
+    final BinlogSegmentRepository binlogSegmentRepository;
+    final S3AsyncTransfer s3AsyncTransfer;
+    final SqlScriptExecutor sqlScriptExecutor;
+
+    @Value("${spring.datasource.secondary.username}")
+    String mariadbUsername;
+
+    @Value("${spring.datasource.secondary.password}")
+    String mariadbPassword;
+
+    // Server cần log_bin; tắt mặc định để không chạy mysqlbinlog khi binlog không được bật
+    @Value("${backup.binlog.enabled:false}")
+    boolean enabled;
+
+    @Value("${backup.compression.codec:ZSTD}")
+    BackupCompression compression;
+
+    @Value("${backup.compression.level:3}")
+    int compressionLevel;
+
+    // Thời gian chờ lần lưu binlog khác của cùng database (ví dụ restore PITR chờ lần lưu định kỳ)
+    @Value("${backup.binlog.lock-timeout-seconds:600}")
+    int lockTimeoutSeconds;
+
+    static final Pattern SET_TIMESTAMP = Pattern.compile("^SET\\s+TIMESTAMP\\s*=\\s*(\\d+(?:\\.\\d+)?)\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
+    static final Pattern TRANSACTION_START = Pattern.compile("(BEGIN|START\\s+TRANSACTION|XA\\s+START)\\b",
+            Pattern.CASE_INSENSITIVE);
+    static final Pattern TRANSACTION_END = Pattern.compile("(COMMIT|ROLLBACK|XA\\s+(COMMIT|ROLLBACK))\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    record Position(String file, long position, String gtid) {
+    }
+
+    /**
+     * Prefix chứa các segment của một backup full: backups/{db}/binlog/{backupId}/.
+     * Thư mục database lấy từ s3Key để không phải load {@code Db}.
+     */
+    static String segmentPrefix(Backup backup) {
+        String key = backup.getS3Key();
+        String dbFolder = key.substring(0, key.indexOf('/', "backups/".length()) + 1);
+        return dbFolder + "binlog/" + backup.getId() + "/";
+    }
+
+    @Scheduled(fixedDelayString = "${backup.binlog.interval-ms:300000}")
+    void archiveAll() {
+        if (!enabled) {
+            return;
+        }
+        for (Long dbId : backupRepository.findDbIdsWithBinlogPosition()) {
+            try {
+                archive(dbId);
+            } catch (Exception e) {
+                log.warn("Không thể lưu binlog của database {}: {}", dbId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Lưu phần binlog từ cuối segment trước (hoặc từ backup full) tới vị trí hiện tại thành một segment mới.
+     * Trả về segment đã tạo, hoặc empty nếu không có gì mới.
+     * Chạy tuần tự cho mỗi database (kể cả giữa các instance) bằng GET_LOCK trên server của database,
+     * để hai lần lưu không đọc cùng segment cuối rồi tạo hai segment chồng nhau.
+     */
+    public Optional<BinlogSegment> archive(Long dbId) throws Exception {
+        Backup base = backupRepository.findFirstByDb_IdAndBinlogFileNotNullOrderByCreatedAtDesc(dbId).orElse(null);
+        if (base == null) {
+            return Optional.empty();
+        }
+        Db db = base.getDb();
+        String lockName = "binlog_archive." + dbId;
+        try (Connection connection = connect(db)) {
+            JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            Integer locked = template.queryForObject("SELECT GET_LOCK(?, ?)", Integer.class, lockName, lockTimeoutSeconds);
+            if (locked == null || locked != 1) {
+                throw new IllegalStateException("Binlog của " + db.getName() + " đang được lưu bởi tiến trình khác");
+            }
+            try {
+                return archiveLocked(base, db, template);
+            } finally {
+                template.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, lockName);
+            }
+        }
+    }
+
+    private Optional<BinlogSegment> archiveLocked(Backup base, Db db, JdbcTemplate template) throws Exception {
+        // Đọc segment cuối sau khi có lock
+        BinlogSegment last = binlogSegmentRepository.findFirstByBackup_IdOrderByIdDesc(base.getId()).orElse(null);
+        Position start = last != null
+                ? new Position(last.getEndFile(), last.getEndPosition(), last.getEndGtid())
+                : new Position(base.getBinlogFile(), base.getBinlogPosition(), base.getBinlogGtid());
+        Instant startedAt = last != null ? last.getEndedAt() : base.getCreatedAt();
+
+        Instant endedAt = Instant.now();
+        Position end = template.queryForObject("SHOW MASTER STATUS",
+                (rs, rowNum) -> new Position(rs.getString("File"), rs.getLong("Position"), null));
+        end = new Position(end.file(), end.position(),
+                template.queryForObject("SELECT @@GLOBAL.gtid_binlog_pos", String.class));
+        List<String> files = template.query("SHOW BINARY LOGS", (rs, rowNum) -> rs.getString("Log_name"));
+        if (start.file().equals(end.file()) && start.position() == end.position()) {
+            return Optional.empty();
+        }
+        int from = files.indexOf(start.file());
+        int to = files.indexOf(end.file());
+        if (from < 0 || to < from) {
+            // Binlog đã bị purge: chuỗi incremental bị đứt cho tới backup full tiếp theo
+            log.warn("Binlog {} của {} không còn trên server, cần backup full mới", start.file(), db.getName());
+            return Optional.empty();
+        }
+
+        List<String> command = new ArrayList<>(List.of(
+                "mysqlbinlog",
+                "--read-from-remote-server",
+                "--host=" + db.getHostname(),
+                "--port=" + db.getPort(),
+                "--user=" + mariadbUsername,
+                // Chỉ giữ event của database này (statement: theo USE, row: theo bảng)
+                "--database=" + db.getName(),
+                // --start-position áp dụng cho file đầu, --stop-position cho file cuối
+                "--start-position=" + start.position(),
+                "--stop-position=" + end.position()));
+        command.addAll(files.subList(from, to + 1));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.environment().put("MYSQL_PWD", mariadbPassword);
+
+        String key = String.format("%s%s.%d-%s.%d.sql%s", segmentPrefix(base), start.file(), start.position(),
+                end.file(), end.position(), compression.getExtension());
+        long size;
+        Process process = pb.start();
+        try (CompressingInputStream in = new CompressingInputStream(
+                new ProcessInputStream(process, "mysqlbinlog"), compression, compressionLevel)) {
+            size = s3AsyncTransfer.upload(key, compression.getContentType(), in);
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+
+        // Segment mới phải bắt đầu đúng ở cuối segment trước, nếu không replay sẽ chạy lại hoặc bỏ sót event
+        BinlogSegment current = binlogSegmentRepository.findFirstByBackup_IdOrderByIdDesc(base.getId()).orElse(null);
+        if (!Objects.equals(current != null ? current.getId() : null, last != null ? last.getId() : null)) {
+            s3AsyncTransfer.delete(key);
+            throw new IllegalStateException("Segment binlog của " + db.getName() + " đã được lưu bởi tiến trình khác");
+        }
+
+        BinlogSegment segment = binlogSegmentRepository.save(BinlogSegment.builder()
+                .db(db)
+                .backup(base)
+                .s3Key(key)
+                .fileSize(size)
+                .compression(compression.name())
+                .startFile(start.file())
+                .startPosition(start.position())
+                .endFile(end.file())
+                .endPosition(end.position())
+                .endGtid(end.gtid())
+                .startedAt(startedAt)
+                .endedAt(endedAt)
+                .build());
+        log.info("Đã lưu binlog {} ({} bytes) cho {}", key, size, db.getName());
+        return Optional.of(segment);
+    }
+
+    /**
+     * Kiểm tra các segment nối liền nhau từ vị trí binlog của backup full: segment chồng lấn hoặc bị hở
+     * sẽ làm event bị chạy hai lần hoặc bị bỏ sót.
+     */
+    static void checkContiguous(Backup base, List<BinlogSegment> segments) {
+        String file = base.getBinlogFile();
+        Long position = base.getBinlogPosition();
+        for (BinlogSegment segment : segments) {
+            if (!Objects.equals(segment.getStartFile(), file) || !Objects.equals(segment.getStartPosition(), position)) {
+                throw new IllegalStateException(String.format("Chuỗi binlog không liên tục: segment %d bắt đầu ở %s:%d, "
+                                + "cần %s:%d", segment.getId(), segment.getStartFile(), segment.getStartPosition(),
+                        file, position));
+            }
+            file = segment.getEndFile();
+            position = segment.getEndPosition();
+        }
+    }
+
+    /**
+     * Replay các segment theo thứ tự trên connection admin (lệnh BINLOG cần quyền mà user tenant không có).
+     * Nếu có {@code stopAt}, dừng ở event đầu tiên sau thời điểm đó.
+     * Event lỗi làm dừng replay và job thất bại: các event sau chạy trên dữ liệu đã lệch sẽ cho kết quả sai.
+     */
+    public SqlScriptExecutor.ScriptResult replay(Db db, List<BinlogSegment> segments, Instant stopAt,
+                                                 JobProgress progress) throws Exception {
+        SqlScriptExecutor.ScriptResult result = SqlScriptExecutor.ScriptResult.empty();
+        if (segments.isEmpty()) {
+            return result;
+        }
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        AtomicBoolean inTransaction = new AtomicBoolean(false);
+        Predicate<String> stopBefore = stopAt == null ? null : sql -> {
+            // Với binlog format STATEMENT/MIXED mỗi câu trong transaction có SET TIMESTAMP riêng:
+            // chỉ xét thời điểm ở ngoài transaction để không dừng giữa BEGIN và COMMIT
+            if (!inTransaction.get() && isAfter(sql, stopAt)) {
+                stopped.set(true);
+                return true;
+            }
+            if (TRANSACTION_START.matcher(sql).lookingAt()) {
+                inTransaction.set(true);
+            } else if (TRANSACTION_END.matcher(sql).lookingAt()) {
+                inTransaction.set(false);
+            }
+            return false;
+        };
+        try (Connection connection = connect(db)) {
+            JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            for (BinlogSegment segment : segments) {
+                try (InputStream in = open(segment, progress)) {
+                    result = result.plus(sqlScriptExecutor.executeStatements(template, in, progress, stopBefore, true));
+                }
+                if (stopped.get()) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * mysqlbinlog ghi "SET TIMESTAMP=epoch[.micro]" trước mỗi event (kể cả BEGIN của transaction).
+     */
+    static boolean isAfter(String sql, Instant stopAt) {
+        Matcher matcher = SET_TIMESTAMP.matcher(sql);
+        if (!matcher.matches()) {
+            return false;
+        }
+        BigDecimal seconds = new BigDecimal(matcher.group(1));
+        Instant eventTime = Instant.ofEpochSecond(seconds.longValue(),
+                seconds.remainder(BigDecimal.ONE).movePointRight(9).longValue());
+        return eventTime.isAfter(stopAt);
+    }
+
+    private InputStream open(BinlogSegment segment, JobProgress progress) throws IOException {
+        return CompressionUtils.decompress(progress.track(s3AsyncTransfer.open(segment.getS3Key())),
+                BackupCompression.of(segment.getCompression()));
+    }
+
+    private Connection connect(Db db) throws SQLException {
+        String url = String.format("jdbc:mariadb://%s:%d/%s", db.getHostname(), db.getPort(), db.getName());
+        return DriverManager.getConnection(url, mariadbUsername, mariadbPassword);
+    }
+}
@@ -39,6 +39,8 @@ public class DbMemberServiceImpl implements DbMemberService {
     @Autowired
     DbUserRepository dbUserRepository;
     @Autowired
+    TenantDataSourceRegistry tenantDataSourceRegistry;
+    @Autowired
     @Qualifier("secondaryJdbcTemplate")
     JdbcTemplate mariadbJdbcTemplate;
 
@@ -95,6 +97,8 @@ public class DbMemberServiceImpl implements DbMemberService {
             String grantSql = newRole.getGrantStatement(db.getName(), dbUser.getUsername());
             mariadbJdbcTemplate.execute(grantSql);
             mariadbJdbcTemplate.execute("FLUSH PRIVILEGES");
+            // Connection cũ vẫn giữ quyền cũ cho tới khi đóng
+            tenantDataSourceRegistry.evictUser(dbId, dbUser.getUsername());
             targetMember.setRole(newRole.name());
             dbMemberRepository.save(targetMember);
         }catch (Exception e){
@@ -133,6 +137,7 @@ public class DbMemberServiceImpl implements DbMemberService {
             String dropUserSql = String.format("DROP USER IF EXISTS '%s'@'%%'", dbUser.getUsername());
             mariadbJdbcTemplate.execute(dropUserSql);
             mariadbJdbcTemplate.execute("FLUSH PRIVILEGES");
+            tenantDataSourceRegistry.evictUser(dbId, dbUser.getUsername());
 
             dbUserRepository.delete(dbUser);
 
@@ -13,6 +13,7 @@ import com.cloud_computing.mariadb.service.DbService;
 import com.cloud_computing.mariadb.util.SecurityUtils;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,12 +22,15 @@ import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.security.SecureRandom;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class DbServiceImpl implements DbService {
@@ -48,6 +52,12 @@ public class DbServiceImpl implements DbService {
     AuditLogRepository auditLogRepository;
     @Autowired
     BackupRepository backupRepository;
+    @Autowired
+    TenantDataSourceRegistry tenantDataSourceRegistry;
+    @Autowired
+    RowCountCache rowCountCache;
+    @Autowired
+    SchemaMetadataCache schemaMetadataCache;
 
     private static final String PASSWORD_CHARS =
             "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
@@ -79,6 +89,7 @@ public class DbServiceImpl implements DbService {
 
         String username = String.format("%s_%s", request.getName(), user.getUsername());
         String password = generateRandomPassword();
+        dropOnRollback(request.getName(), username);
         createUserOnMariaDb(request.getName(), username, password, DbRole.OWNER);
         Db db = dbRepository.save(Db.builder()
                 .project(project)
@@ -189,6 +200,9 @@ public class DbServiceImpl implements DbService {
         try {
             auditLogRepository.deleteAllByDb_Id(id);
             backupRepository.deleteAllByDb_Id(id);
+            tenantDataSourceRegistry.evictDb(id);
+            rowCountCache.invalidateDb(id);
+            schemaMetadataCache.invalidateDb(id);
             dropDatabaseOnMariaDb(db.getName());
             dropAllUsersOnMariaDB(db.getName());
             List<DbMember> dbms = dbMemberRepository.findAllByDb_Id(id);
@@ -314,6 +328,31 @@ public class DbServiceImpl implements DbService {
 
 
 
+    /**
+     * Database và user trên MariaDB không nằm trong transaction: nếu transaction (kể cả transaction bên ngoài
+     * gọi createDb, ví dụ restore sang database mới) bị rollback thì xóa lại để không còn database mồ côi.
+     */
+    private void dropOnRollback(String dbName, String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    mariadbJdbcTemplate.execute(String.format("DROP USER IF EXISTS '%s'@'%%'", username));
+                    mariadbJdbcTemplate.execute("FLUSH PRIVILEGES");
+                    dropDatabaseOnMariaDb(dbName);
+                } catch (Exception e) {
+                    log.warn("Không thể xóa database {} sau khi rollback: {}", dbName, e.getMessage());
+                }
+            }
+        });
+    }
+
     private void createDbOnMariaDb(String dbName){
         try {
             String sql = String.format("CREATE DATABASE IF NOT EXISTS `%s` CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci", dbName);
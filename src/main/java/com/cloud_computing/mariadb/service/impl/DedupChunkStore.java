@@ -0,0 +1,376 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.entity.Backup;
+import com.cloud_computing.mariadb.entity.enums.BackupCompression;
+import com.cloud_computing.mariadb.entity.enums.BackupFormat;
+import com.cloud_computing.mariadb.entity.enums.BackupJobType;
+import com.cloud_computing.mariadb.repository.BackupJobRepository;
+import com.cloud_computing.mariadb.repository.BackupRepository;
+import com.cloud_computing.mariadb.util.CompressionUtils;
+import com.cloud_computing.mariadb.util.ContentDefinedChunker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Kho chunk khử trùng lặp cho backup dạng DEDUP.
+ * File mysqldump được cắt theo nội dung ({@link ContentDefinedChunker}), mỗi chunk đặt tên theo SHA-256
+ * và chỉ upload nếu database đó chưa có chunk này trên S3. Các backup liên tiếp gần như giống nhau
+ * nên phần lớn chunk được dùng lại, mỗi backup chỉ thêm một manifest nhỏ.
+ * <p>
+ * Chunk không còn manifest nào tham chiếu bị xóa bằng {@link #collectGarbage} (mark-and-sweep).
+ * Backup và GC của cùng database loại trừ nhau qua {@link #withLock}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DedupChunkStore {
+    static final String CHUNK_ROOT = "chunks/";
+
+    final S3AsyncTransfer s3AsyncTransfer;
+    final BackupRepository backupRepository;
+    final BackupJobRepository backupJobRepository;
+    final ObjectMapper objectMapper;
+
+    @Value("${spring.datasource.secondary.jdbc-url}")
+    String mariadbUrl;
+
+    @Value("${spring.datasource.secondary.username}")
+    String mariadbUsername;
+
+    @Value("${spring.datasource.secondary.password}")
+    String mariadbPassword;
+
+    // Thời gian backup chờ lock của kho chunk (GC hoặc backup khác đang giữ)
+    @Value("${backup.dedup.lock-timeout-seconds:3600}")
+    int lockTimeoutSeconds;
+
+    @Value("${backup.dedup.min-chunk-kb:256}")
+    int minChunkKb;
+
+    @Value("${backup.dedup.avg-chunk-kb:1024}")
+    int avgChunkKb;
+
+    @Value("${backup.dedup.max-chunk-kb:4096}")
+    int maxChunkKb;
+
+    // Chunk mới hơn khoảng này không bị GC: có thể thuộc backup đang upload dở
+    @Value("${backup.dedup.gc-grace-ms:3600000}")
+    long gcGraceMs;
+
+    // Số chunk đang upload/tải trước của mỗi backup/restore, giới hạn bộ nhớ giữ chunk
+    @Value("${backup.dedup.max-in-flight:4}")
+    int maxInFlight;
+
+    public static String chunkPrefix(String dbName) {
+        return CHUNK_ROOT + dbName + "/";
+    }
+
+    @FunctionalInterface
+    public interface LockedTask<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Chạy {@code task} trong lúc giữ lock kho chunk của database. Backup DEDUP giữ lock từ lúc liệt kê chunk
+     * tới khi lưu record backup, để GC không xóa chunk được dùng lại khi manifest chưa được tham chiếu.
+     * Lock là GET_LOCK trên server MariaDB nên có hiệu lực giữa các instance.
+     */
+    public <T> T withLock(Long dbId, LockedTask<T> task) throws Exception {
+        try (Connection connection = connect()) {
+            JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (!lock(template, dbId, lockTimeoutSeconds)) {
+                throw new IllegalStateException("Kho chunk của database " + dbId + " đang bị khóa bởi tiến trình khác");
+            }
+            try {
+                return task.run();
+            } finally {
+                unlock(template, dbId);
+            }
+        }
+    }
+
+    static String chunkKey(String dbName, String hash, BackupCompression compression) {
+        return chunkPrefix(dbName) + hash.substring(0, 2) + "/" + hash + compression.getExtension();
+    }
+
+    /**
+     * Cắt {@code in} thành chunk và upload các chunk còn thiếu (song song, tối đa {@code max-in-flight} chunk
+     * trong bộ nhớ). Trả về manifest, người gọi tự lưu manifest.
+     * Nếu lỗi giữa chừng, các chunk đã upload không được tham chiếu và sẽ bị GC sau.
+     */
+    public DedupManifest store(String dbName, InputStream in, BackupCompression compression, int level,
+                               JobProgress progress) throws IOException {
+        // Chunk đã có: key -> kích thước trên S3
+        Map<String, Long> existing = new HashMap<>();
+        for (S3Object object : s3AsyncTransfer.list(chunkPrefix(dbName))) {
+            existing.put(object.key(), object.size());
+        }
+
+        MessageDigest digest = sha256();
+        List<DedupManifest.Chunk> chunks = new ArrayList<>();
+        Semaphore permits = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long[] uploaded = new long[2];
+
+        ContentDefinedChunker chunker = new ContentDefinedChunker(minChunkKb * 1024, avgChunkKb * 1024,
+                maxChunkKb * 1024, (data, length) -> {
+            progress.checkCancelled();
+            digest.update(data, 0, length);
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String key = chunkKey(dbName, hash, compression);
+            Long storedBytes = existing.get(key);
+            if (storedBytes == null) {
+                byte[] stored = compress(data, length, compression, level);
+                storedBytes = (long) stored.length;
+                existing.put(key, storedBytes);
+                uploaded[0]++;
+                uploaded[1] += stored.length;
+                acquire(permits, 1);
+                checkFailure(failure);
+                s3AsyncTransfer.putAsync(key, compression.getContentType(), stored).whenComplete((response, error) -> {
+                    if (error != null) {
+                        failure.compareAndSet(null, error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    }
+                    permits.release();
+                });
+            }
+            chunks.add(new DedupManifest.Chunk(hash, length, storedBytes));
+        });
+        try {
+            in.transferTo(chunker);
+            chunker.close();
+        } finally {
+            // Chờ các upload đang chạy
+            acquire(permits, maxInFlight);
+        }
+        checkFailure(failure);
+
+        log.info("Backup dedup {}: {} chunk, upload mới {} chunk ({} byte)", dbName, chunks.size(), uploaded[0], uploaded[1]);
+        return new DedupManifest(DedupManifest.VERSION, dbName, Instant.now(), compression.name(), chunks,
+                uploaded[0], uploaded[1]);
+    }
+
+    public DedupManifest readManifest(String key) throws IOException {
+        try (InputStream in = s3AsyncTransfer.open(key)) {
+            return objectMapper.readValue(in, DedupManifest.class);
+        }
+    }
+
+    /**
+     * Ghép các chunk của manifest thành file SQL. Chunk được tải trước tối đa {@code max-in-flight} chunk
+     * và kiểm tra SHA-256 trước khi trả về; {@code progress} đếm số byte tải về.
+     */
+    public InputStream open(String dbName, DedupManifest manifest, JobProgress progress) {
+        return new ChunkInputStream(dbName, manifest, progress);
+    }
+
+    /**
+     * Xóa chunk của database không còn được manifest nào tham chiếu. Bỏ qua khi database đang có job backup
+     * hoặc lock kho chunk đang bị giữ (chunk được dùng lại chưa nằm trong manifest nào). Trả về số chunk đã xóa.
+     */
+    public int collectGarbage(Long dbId, String dbName) throws IOException {
+        try (Connection connection = connect()) {
+            JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (!lock(template, dbId, 0)) {
+                log.info("Bỏ qua GC chunk của {}: kho chunk đang được backup sử dụng", dbName);
+                return 0;
+            }
+            try {
+                return collectGarbageLocked(dbId, dbName);
+            } finally {
+                unlock(template, dbId);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Không thể lấy lock kho chunk: " + e.getMessage(), e);
+        }
+    }
+
+    private int collectGarbageLocked(Long dbId, String dbName) throws IOException {
+        if (backupJobRepository.existsByDb_IdAndTypeAndStatusIn(dbId, BackupJobType.BACKUP.name(),
+                BackupScheduler.ACTIVE_STATUSES)) {
+            log.info("Bỏ qua GC chunk của {}: đang có job backup", dbName);
+            return 0;
+        }
+        Set<String> live = new HashSet<>();
+        for (Backup backup : backupRepository.findByDb_IdAndFormat(dbId, BackupFormat.DEDUP.name())) {
+            // Không đọc được manifest thì dừng, tránh xóa nhầm chunk đang được dùng
+            DedupManifest manifest = readManifest(backup.getS3Key());
+            BackupCompression compression = BackupCompression.of(manifest.compression());
+            manifest.chunks().forEach(chunk -> live.add(chunkKey(dbName, chunk.hash(), compression)));
+        }
+
+        Instant cutoff = Instant.now().minusMillis(gcGraceMs);
+        List<String> garbage = s3AsyncTransfer.list(chunkPrefix(dbName)).stream()
+                .filter(object -> !live.contains(object.key()) && object.lastModified().isBefore(cutoff))
+                .map(S3Object::key)
+                .toList();
+        if (garbage.isEmpty()) {
+            return 0;
+        }
+        int deleted = garbage.size() - s3AsyncTransfer.deleteKeys(garbage).size();
+        log.info("GC chunk của {}: xóa {} chunk, còn {} chunk được tham chiếu", dbName, deleted, live.size());
+        return deleted;
+    }
+
+    /**
+     * Đọc lần lượt các chunk, các chunk kế tiếp được tải trước bằng request bất đồng bộ;
+     * giải nén và kiểm tra SHA-256 chạy trên thread đọc.
+     */
+    class ChunkInputStream extends InputStream {
+        final String dbName;
+        final DedupManifest manifest;
+        final BackupCompression compression;
+        final JobProgress progress;
+        final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+        int nextToFetch;
+        int nextToRead;
+        ByteArrayInputStream current = new ByteArrayInputStream(new byte[0]);
+        boolean closed;
+
+        ChunkInputStream(String dbName, DedupManifest manifest, JobProgress progress) {
+            this.dbName = dbName;
+            this.manifest = manifest;
+            this.compression = BackupCompression.of(manifest.compression());
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream đã đóng");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (current.available() == 0) {
+                if (!advance()) {
+                    return -1;
+                }
+            }
+            return current.read(b, off, len);
+        }
+
+        private boolean advance() throws IOException {
+            while (pending.size() < maxInFlight && nextToFetch < manifest.chunks().size()) {
+                DedupManifest.Chunk chunk = manifest.chunks().get(nextToFetch++);
+                pending.add(s3AsyncTransfer.getBytesAsync(chunkKey(dbName, chunk.hash(), compression)));
+            }
+            CompletableFuture<byte[]> next = pending.poll();
+            if (next == null) {
+                return false;
+            }
+            current = new ByteArrayInputStream(verify(manifest.chunks().get(nextToRead++), S3AsyncTransfer.await(next)));
+            return true;
+        }
+
+        private byte[] verify(DedupManifest.Chunk chunk, byte[] stored) throws IOException {
+            byte[] data;
+            try (InputStream in = CompressionUtils.decompress(progress.track(new ByteArrayInputStream(stored)), compression)) {
+                data = in.readAllBytes();
+            }
+            String hash = HexFormat.of().formatHex(sha256().digest(data));
+            if (data.length != chunk.size() || !hash.equals(chunk.hash())) {
+                throw new IOException("Chunk " + chunk.hash() + " bị hỏng (SHA-256 không khớp)");
+            }
+            return data;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(mariadbUrl, mariadbUsername, mariadbPassword);
+    }
+
+    private static boolean lock(JdbcTemplate template, Long dbId, int timeoutSeconds) {
+        Integer locked = template.queryForObject("SELECT GET_LOCK(?, ?)", Integer.class, lockName(dbId), timeoutSeconds);
+        return locked != null && locked == 1;
+    }
+
+    private static void unlock(JdbcTemplate template, Long dbId) {
+        template.queryForObject("SELECT RELEASE_LOCK(?)", Integer.class, lockName(dbId));
+    }
+
+    private static String lockName(Long dbId) {
+        return "dedup_chunks." + dbId;
+    }
+
+    private static byte[] compress(byte[] data, int length, BackupCompression compression, int level) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(compression == BackupCompression.NONE ? length : length / 3);
+        try (OutputStream out = CompressionUtils.compress(bytes, compression, level)) {
+            out.write(data, 0, length);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void acquire(Semaphore permits, int count) throws InterruptedIOException {
+        try {
+            permits.acquire(count);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload bị gián đoạn");
+        }
+    }
+
+    private static void checkFailure(AtomicReference<Throwable> failure) throws IOException {
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new IOException("Upload chunk thất bại: " + error.getMessage(), error);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Manifest của backup dạng DEDUP: danh sách chunk (theo thứ tự) ghép lại thành file mysqldump.
+ * Chunk được lưu một lần cho mỗi database tại {@code chunks/{db}/} theo SHA-256 của nội dung (chưa nén)
+ * và dùng chung giữa các backup.
+ */
+public record DedupManifest(
+        int version,
+        String database,
+        Instant createdAt,
+        String compression,
+        List<Chunk> chunks,
+        long uploadedChunks,
+        long uploadedBytes) {
+
+    public static final int VERSION = 1;
+
+    /**
+     * {@code size}: số byte chưa nén, {@code storedBytes}: kích thước object trên S3.
+     */
+    public record Chunk(String hash, int size, long storedBytes) {
+    }
+
+    public long totalBytes() {
+        return chunks.stream().mapToLong(Chunk::storedBytes).sum();
+    }
+
+    /**
+     * Checksum của backup tính từ SHA-256 các chunk, giống cách tính của {@link BackupManifest#checksum}.
+     */
+    public String checksum() {
+        return BackupManifest.checksum(chunks.stream().map(Chunk::hash).toList());
+    }
+
+    public long totalUncompressedBytes() {
+        return chunks.stream().mapToLong(Chunk::size).sum();
+    }
+}
@@ -0,0 +1,155 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.dto.RestoreReportDTO;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Tiến độ của một job đang chạy, được cập nhật từ nhiều thread và đọc bởi API/scheduler.
+ * Hủy job là hợp tác: các stream được bọc bởi {@link #track} và executor SQL kiểm tra cờ hủy.
+ */
+public class JobProgress {
+    /**
+     * Dùng khi chạy ngoài job (không theo dõi, không hủy được).
+     */
+    public static final JobProgress NONE = new JobProgress();
+
+    final AtomicLong bytesProcessed = new AtomicLong();
+    final AtomicLong statementsExecuted = new AtomicLong();
+    final AtomicLong statementsFailed = new AtomicLong();
+    final long startedAt = System.currentTimeMillis();
+    volatile long bytesTotal;
+    volatile String phase;
+    volatile boolean cancelled;
+    // Tiến độ từng bảng (restore CHUNKED), đọc mỗi lần ghi tiến độ
+    volatile Supplier<List<RestoreReportDTO.TableProgress>> tables;
+
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public void setBytesTotal(long bytesTotal) {
+        this.bytesTotal = bytesTotal;
+    }
+
+    public long getBytesTotal() {
+        return bytesTotal;
+    }
+
+    public void setTables(Supplier<List<RestoreReportDTO.TableProgress>> tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Snapshot tiến độ từng bảng, null khi job không báo theo bảng.
+     */
+    public List<RestoreReportDTO.TableProgress> getTables() {
+        Supplier<List<RestoreReportDTO.TableProgress>> current = tables;
+        return current != null ? current.get() : null;
+    }
+
+    public long getBytesProcessed() {
+        return bytesProcessed.get();
+    }
+
+    public long getStatementsExecuted() {
+        return statementsExecuted.get();
+    }
+
+    public long getStatementsFailed() {
+        return statementsFailed.get();
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void addBytes(long bytes) {
+        bytesProcessed.addAndGet(bytes);
+    }
+
+    public void addStatements(long executed, long failed) {
+        statementsExecuted.addAndGet(executed);
+        statementsFailed.addAndGet(failed);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Job đã bị hủy");
+        }
+    }
+
+    /**
+     * Đếm byte đọc qua stream và dừng khi job bị hủy.
+     */
+    public InputStream track(InputStream in) {
+        if (this == NONE) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                checkCancelled();
+                int b = super.read();
+                if (b >= 0) {
+                    bytesProcessed.incrementAndGet();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                checkCancelled();
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytesProcessed.addAndGet(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Đếm byte ghi qua stream và dừng khi job bị hủy.
+     */
+    public OutputStream track(OutputStream out) {
+        if (this == NONE) {
+            return out;
+        }
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                checkCancelled();
+                out.write(b);
+                bytesProcessed.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                checkCancelled();
+                out.write(b, off, len);
+                bytesProcessed.addAndGet(len);
+            }
+        };
+    }
+}
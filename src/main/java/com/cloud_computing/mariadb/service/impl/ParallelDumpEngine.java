@@ -0,0 +1,625 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.entity.Db;
+import com.cloud_computing.mariadb.entity.enums.BackupCompression;
+import com.cloud_computing.mariadb.util.CompressionUtils;
+import com.cloud_computing.mariadb.util.CountingOutputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Dump logic một database bằng nhiều connection song song.
+ * Các worker cùng mở {@code START TRANSACTION WITH CONSISTENT SNAPSHOT} trong lúc giữ
+ * {@code FLUSH TABLES WITH READ LOCK} nên thấy cùng một thời điểm dữ liệu; lock được nhả ngay sau khi mở xong
+ * snapshot, schema và khoảng chia chunk được đọc trong snapshot của worker đầu tiên.
+ * Mỗi bảng (hoặc mỗi khoảng PK của bảng lớn) được ghi ra một object S3 riêng,
+ * {@link BackupManifest} liệt kê các object theo thứ tự restore.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ParallelDumpEngine {
+    static final Set<String> INTEGER_TYPES = Set.of("tinyint", "smallint", "mediumint", "int", "bigint");
+    static final Set<String> NUMERIC_TYPES = Set.of("tinyint", "smallint", "mediumint", "int", "bigint",
+            "decimal", "float", "double");
+    static final Set<String> BINARY_TYPES = Set.of("bit", "binary", "varbinary", "tinyblob", "blob", "mediumblob",
+            "longblob", "geometry", "point", "linestring", "polygon", "multipoint", "multilinestring",
+            "multipolygon", "geometrycollection");
+    // Bỏ DEFINER để object được tạo bởi user restore, tránh cần quyền SUPER
+    static final Pattern DEFINER = Pattern.compile(
+            "\\s+DEFINER\\s*=\\s*(`[^`]*`|'[^']*'|[^\\s@]+)@(`[^`]*`|'[^']*'|\\S+)", Pattern.CASE_INSENSITIVE);
+    static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    record ColumnInfo(String name, String dataType) {
+    }
+
+    record TableInfo(String name, long estimatedRows, List<ColumnInfo> columns, List<String> primaryKey) {
+    }
+
+    record ChunkTask(TableInfo table, int index, String condition) {
+    }
+
+    @FunctionalInterface
+    interface SqlBody {
+        long write(Writer writer) throws Exception;
+    }
+
+    final S3AsyncTransfer s3AsyncTransfer;
+    final ObjectMapper objectMapper;
+
+    @Value("${spring.datasource.secondary.username}")
+    String mariadbUsername;
+    @Value("${spring.datasource.secondary.password}")
+    String mariadbPassword;
+
+    @Value("${backup.dump.threads:4}")
+    int threads;
+
+    @Value("${backup.dump.chunk-rows:500000}")
+    long chunkRows;
+
+    @Value("${backup.dump.fetch-size:1000}")
+    int fetchSize;
+
+    @Value("${backup.dump.statement-bytes:1048576}")
+    int statementBytes;
+
+    @Value("${backup.dump.lock-wait-timeout-seconds:10}")
+    int lockWaitTimeoutSeconds;
+
+    /**
+     * Dump {@code db} vào các object dưới {@code prefix} và trả về manifest đã upload.
+     * Khi lỗi, các object đã upload không bị xóa ở đây; caller dọn theo prefix.
+     */
+    public BackupManifest dump(Db db, String prefix, BackupCompression compression, int level,
+                               JobProgress progress) throws Exception {
+        List<Connection> workers = new ArrayList<>();
+        try {
+            Instant snapshotAt;
+            BackupManifest.BinlogPosition binlog = null;
+            try (Connection coordinator = connect(db)) {
+                JdbcTemplate lock = new JdbcTemplate(new SingleConnectionDataSource(coordinator, true));
+
+                // Cần quyền RELOAD; nếu không có thì dump trên 1 connection (vẫn nhất quán với InnoDB).
+                // Lock là global trên server dùng chung: không chờ quá lock-wait-timeout sau các query dài
+                boolean locked = true;
+                try {
+                    lock.execute("SET SESSION lock_wait_timeout = " + Math.max(1, lockWaitTimeoutSeconds));
+                    lock.execute("FLUSH TABLES WITH READ LOCK");
+                } catch (Exception e) {
+                    locked = false;
+                    log.warn("Không lấy được global read lock cho {}, dump tuần tự: {}", db.getName(), e.getMessage());
+                }
+
+                // Chỉ giữ lock trong lúc mở snapshot và đọc vị trí binlog, mọi thứ còn lại đọc trong snapshot
+                try {
+                    int workerCount = locked ? Math.max(1, threads) : 1;
+                    for (int i = 0; i < workerCount; i++) {
+                        workers.add(openSnapshot(db));
+                    }
+                    snapshotAt = Instant.now();
+                    if (locked) {
+                        // Khi giữ lock, vị trí binlog khớp với snapshot của các worker
+                        binlog = readBinlogPosition(lock);
+                    }
+                } finally {
+                    if (locked) {
+                        lock.execute("UNLOCK TABLES");
+                    }
+                }
+            }
+
+            // Schema và kế hoạch chia chunk đọc trên connection của worker đầu tiên, trong cùng snapshot với dữ liệu;
+            // DDL chạy sau khi mở snapshot sẽ làm SELECT của worker lỗi (table definition has changed) thay vì dump sai
+            progress.setPhase("SCHEMA");
+            JdbcTemplate meta = new JdbcTemplate(new SingleConnectionDataSource(workers.get(0), true));
+            String schemaSql;
+            String postSql;
+            List<ChunkTask> tasks;
+            // SHOW CREATE hiển thị giá trị TIMESTAMP theo time_zone của session: dùng time_zone mặc định như trước
+            meta.execute("SET SESSION time_zone = @@GLOBAL.time_zone");
+            try {
+                List<TableInfo> tables = readTables(meta, db.getName());
+                // Kích thước dữ liệu trong InnoDB, chỉ dùng để ước lượng thời gian còn lại
+                Long dataLength = meta.queryForObject("SELECT COALESCE(SUM(DATA_LENGTH), 0) FROM information_schema.TABLES " +
+                        "WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE'", Long.class, db.getName());
+                progress.setBytesTotal(dataLength != null ? dataLength : 0);
+                schemaSql = buildSchemaSql(meta, tables);
+                postSql = buildPostSql(meta, db.getName());
+                tasks = planChunks(meta, tables);
+            } finally {
+                meta.execute("SET SESSION time_zone = '+00:00'");
+            }
+
+            BackupManifest.Part schema = writePart(prefix + "schema.sql" + compression.getExtension(), compression, level,
+                    progress, writer -> {
+                        writer.write(schemaSql);
+                        return 0;
+                    });
+
+            progress.setPhase("DATA");
+            Map<String, BackupManifest.Part[]> chunks = runChunks(workers, tasks, prefix, compression, level, progress);
+
+            progress.setPhase("POST");
+            BackupManifest.Part post = writePart(prefix + "post.sql" + compression.getExtension(), compression, level,
+                    progress, writer -> {
+                        writer.write(postSql);
+                        return 0;
+                    });
+
+            List<BackupManifest.TableEntry> entries = new ArrayList<>();
+            List<String> partHashes = new ArrayList<>();
+            partHashes.add(schema.sha256());
+            for (ChunkTask task : tasks) {
+                if (task.index() == 0) {
+                    BackupManifest.Part[] parts = chunks.get(task.table().name());
+                    entries.add(new BackupManifest.TableEntry(task.table().name(), task.table().estimatedRows(),
+                            List.of(parts)));
+                    for (BackupManifest.Part part : parts) {
+                        partHashes.add(part.sha256());
+                    }
+                }
+            }
+            partHashes.add(post.sha256());
+
+            BackupManifest manifest = new BackupManifest(BackupManifest.VERSION, db.getName(), snapshotAt,
+                    compression.name(), schema, entries, post, binlog, BackupManifest.checksum(partHashes));
+            S3AsyncTransfer.UploadStream out = s3AsyncTransfer.openUpload(prefix + "manifest.json", "application/json");
+            try {
+                out.write(objectMapper.writeValueAsBytes(manifest));
+                out.close();
+            } catch (IOException | RuntimeException e) {
+                out.abort();
+                throw e;
+            }
+            return manifest;
+        } finally {
+            for (Connection worker : workers) {
+                closeQuietly(worker);
+            }
+        }
+    }
+
+    private Map<String, BackupManifest.Part[]> runChunks(List<Connection> workers, List<ChunkTask> tasks, String prefix,
+                                                         BackupCompression compression, int level,
+                                                         JobProgress progress) throws Exception {
+        Map<String, Integer> chunkCounts = new LinkedHashMap<>();
+        tasks.forEach(task -> chunkCounts.merge(task.table().name(), 1, Integer::sum));
+        Map<String, BackupManifest.Part[]> chunks = new LinkedHashMap<>();
+        chunkCounts.forEach((table, count) -> chunks.put(table, new BackupManifest.Part[count]));
+
+        ConcurrentLinkedQueue<ChunkTask> queue = new ConcurrentLinkedQueue<>(tasks);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        int workerCount = Math.min(workers.size(), Math.max(1, tasks.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(workerCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                Connection connection = workers.get(i);
+                futures.add(pool.submit(() -> {
+                    ChunkTask task;
+                    while (!failed.get() && (task = queue.poll()) != null) {
+                        try {
+                            BackupManifest.Part part = dumpChunk(connection, task, prefix, compression, level, progress);
+                            synchronized (chunks) {
+                                chunks.get(task.table().name())[task.index()] = part;
+                            }
+                        } catch (Exception e) {
+                            failed.set(true);
+                            throw e;
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return chunks;
+    }
+
+    private BackupManifest.Part dumpChunk(Connection connection, ChunkTask task, String prefix,
+                                          BackupCompression compression, int level,
+                                          JobProgress progress) throws Exception {
+        TableInfo table = task.table();
+        String columnList = String.join(",", table.columns().stream().map(c -> quote(c.name())).toList());
+        String select = "SELECT " + columnList + " FROM " + quote(table.name())
+                + (task.condition() == null ? "" : " WHERE " + task.condition());
+        String insertPrefix = "INSERT INTO " + quote(table.name()) + " (" + columnList + ") VALUES\n";
+        String key = String.format("%sdata/%s.%05d.sql%s", prefix, table.name(), task.index(), compression.getExtension());
+
+        return writePart(key, compression, level, progress, writer -> {
+            writer.write("SET time_zone = '+00:00';\n");
+            long rows = 0;
+            try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet rs = statement.executeQuery(select)) {
+                    int columnCount = table.columns().size();
+                    long statementLength = 0;
+                    while (rs.next()) {
+                        if (statementLength == 0) {
+                            writer.write(insertPrefix);
+                            statementLength = insertPrefix.length();
+                        } else {
+                            writer.write(",\n");
+                        }
+                        statementLength += writeRow(writer, rs, table.columns(), columnCount);
+                        rows++;
+                        // Giữ mỗi INSERT dưới max_allowed_packet
+                        if (statementLength >= statementBytes) {
+                            writer.write(";\n");
+                            statementLength = 0;
+                        }
+                    }
+                    if (statementLength > 0) {
+                        writer.write(";\n");
+                    }
+                }
+            }
+            return rows;
+        });
+    }
+
+    private long writeRow(Writer writer, ResultSet rs, List<ColumnInfo> columns, int columnCount) throws SQLException, IOException {
+        long length = 2;
+        writer.write('(');
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                writer.write(',');
+                length++;
+            }
+            String dataType = columns.get(i - 1).dataType();
+            if (BINARY_TYPES.contains(dataType)) {
+                byte[] bytes = rs.getBytes(i);
+                length += writeHex(writer, bytes);
+            } else {
+                String value = rs.getString(i);
+                if (value == null) {
+                    writer.write("NULL");
+                    length += 4;
+                } else if (NUMERIC_TYPES.contains(dataType)) {
+                    writer.write(value);
+                    length += value.length();
+                } else {
+                    length += writeString(writer, value);
+                }
+            }
+        }
+        writer.write(')');
+        return length;
+    }
+
+    private static long writeHex(Writer writer, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            writer.write("NULL");
+            return 4;
+        }
+        if (bytes.length == 0) {
+            writer.write("''");
+            return 2;
+        }
+        writer.write("0x");
+        for (byte b : bytes) {
+            writer.write(HEX[(b >> 4) & 0xF]);
+            writer.write(HEX[b & 0xF]);
+        }
+        return 2 + 2L * bytes.length;
+    }
+
+    private static long writeString(Writer writer, String value) throws IOException {
+        writer.write('\'');
+        long length = 2;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped = switch (c) {
+                case '\0' -> "\\0";
+                case '\'' -> "\\'";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\u001A' -> "\\Z";
+                default -> null;
+            };
+            if (escaped == null) {
+                writer.write(c);
+                length++;
+            } else {
+                writer.write(escaped);
+                length += 2;
+            }
+        }
+        writer.write('\'');
+        return length;
+    }
+
+    private BackupManifest.Part writePart(String key, BackupCompression compression, int level, JobProgress progress,
+                                          SqlBody body) throws Exception {
+        S3AsyncTransfer.UploadStream out = s3AsyncTransfer.openUpload(key, compression.getContentType());
+        Writer writer = null;
+        try {
+            // Tiến độ tính theo byte SQL chưa nén; job bị hủy thì lần ghi tiếp theo báo lỗi và part bị abort.
+            // SHA-256 tính trên byte đã nén đúng như object trên S3
+            MessageDigest digest = sha256();
+            CountingOutputStream counter = new CountingOutputStream(
+                    progress.track(CompressionUtils.compress(new DigestOutputStream(out, digest), compression, level)));
+            writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), 64 * 1024);
+            long rows = body.write(writer);
+            writer.close();
+            return new BackupManifest.Part(key, out.getBytesWritten(), counter.getCount(), rows,
+                    HexFormat.of().formatHex(digest.digest()));
+        } catch (Exception e) {
+            out.abort();
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<TableInfo> readTables(JdbcTemplate meta, String dbName) {
+        Map<String, List<ColumnInfo>> columns = new LinkedHashMap<>();
+        meta.query("SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE, EXTRA FROM information_schema.COLUMNS " +
+                        "WHERE TABLE_SCHEMA = ? ORDER BY TABLE_NAME, ORDINAL_POSITION",
+                rs -> {
+                    // Cột generated không được INSERT giá trị
+                    String extra = rs.getString("EXTRA");
+                    if (extra != null && extra.toUpperCase().contains("GENERATED")) {
+                        return;
+                    }
+                    columns.computeIfAbsent(rs.getString("TABLE_NAME"), k -> new ArrayList<>())
+                            .add(new ColumnInfo(rs.getString("COLUMN_NAME"), rs.getString("DATA_TYPE").toLowerCase()));
+                }, dbName);
+
+        Map<String, List<String>> primaryKeys = new LinkedHashMap<>();
+        meta.query("SELECT TABLE_NAME, COLUMN_NAME FROM information_schema.STATISTICS " +
+                        "WHERE TABLE_SCHEMA = ? AND INDEX_NAME = 'PRIMARY' ORDER BY TABLE_NAME, SEQ_IN_INDEX",
+                rs -> {
+                    primaryKeys.computeIfAbsent(rs.getString("TABLE_NAME"), k -> new ArrayList<>())
+                            .add(rs.getString("COLUMN_NAME"));
+                }, dbName);
+
+        List<TableInfo> tables = new ArrayList<>();
+        meta.query("SELECT TABLE_NAME, TABLE_ROWS FROM information_schema.TABLES " +
+                        "WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME",
+                rs -> {
+                    String name = rs.getString("TABLE_NAME");
+                    tables.add(new TableInfo(name, rs.getLong("TABLE_ROWS"),
+                            columns.getOrDefault(name, List.of()),
+                            primaryKeys.getOrDefault(name, List.of())));
+                }, dbName);
+        return tables;
+    }
+
+    private String buildSchemaSql(JdbcTemplate meta, List<TableInfo> tables) {
+        StringBuilder sql = new StringBuilder("SET FOREIGN_KEY_CHECKS = 0;\n");
+        for (TableInfo table : tables) {
+            String create = meta.queryForObject("SHOW CREATE TABLE " + quote(table.name()),
+                    (rs, rowNum) -> rs.getString(2));
+            sql.append("DROP TABLE IF EXISTS ").append(quote(table.name())).append(";\n")
+                    .append(create).append(";\n\n");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * View, routine, trigger, event: tạo sau khi có dữ liệu để trigger không chạy lúc load.
+     */
+    private String buildPostSql(JdbcTemplate meta, String dbName) {
+        StringBuilder sql = new StringBuilder();
+
+        for (String view : meta.queryForList("SELECT TABLE_NAME FROM information_schema.VIEWS " +
+                "WHERE TABLE_SCHEMA = ? ORDER BY TABLE_NAME", String.class, dbName)) {
+            String create = meta.queryForObject("SHOW CREATE VIEW " + quote(view), (rs, rowNum) -> rs.getString(2));
+            sql.append("DROP VIEW IF EXISTS ").append(quote(view)).append(";\n")
+                    .append(stripDefiner(create)).append(";\n\n");
+        }
+
+        List<Map<String, Object>> routines = meta.queryForList("SELECT ROUTINE_NAME, ROUTINE_TYPE " +
+                "FROM information_schema.ROUTINES WHERE ROUTINE_SCHEMA = ? ORDER BY ROUTINE_NAME", dbName);
+        for (Map<String, Object> routine : routines) {
+            String type = (String) routine.get("ROUTINE_TYPE");
+            String name = (String) routine.get("ROUTINE_NAME");
+            String create = meta.queryForObject("SHOW CREATE " + type + " " + quote(name), (rs, rowNum) -> rs.getString(3));
+            appendDelimited(sql, create);
+        }
+
+        for (String trigger : meta.queryForList("SELECT TRIGGER_NAME FROM information_schema.TRIGGERS " +
+                "WHERE TRIGGER_SCHEMA = ? ORDER BY TRIGGER_NAME", String.class, dbName)) {
+            String create = meta.queryForObject("SHOW CREATE TRIGGER " + quote(trigger), (rs, rowNum) -> rs.getString(3));
+            appendDelimited(sql, create);
+        }
+
+        for (String event : meta.queryForList("SELECT EVENT_NAME FROM information_schema.EVENTS " +
+                "WHERE EVENT_SCHEMA = ? ORDER BY EVENT_NAME", String.class, dbName)) {
+            String create = meta.queryForObject("SHOW CREATE EVENT " + quote(event), (rs, rowNum) -> rs.getString(4));
+            appendDelimited(sql, create);
+        }
+        return sql.toString();
+    }
+
+    private void appendDelimited(StringBuilder sql, String create) {
+        if (create == null) {
+            return;
+        }
+        // Thân routine/trigger có dấu ';' nên dùng DELIMITER như mysqldump
+        sql.append("DELIMITER ;;\n").append(stripDefiner(create)).append(" ;;\nDELIMITER ;\n\n");
+    }
+
+    /**
+     * Bảng có PK là một cột số nguyên và lớn hơn chunk-rows thì chia theo khoảng PK,
+     * các bảng khác dump nguyên bảng trong một chunk.
+     */
+    private List<ChunkTask> planChunks(JdbcTemplate meta, List<TableInfo> tables) {
+        List<ChunkTask> tasks = new ArrayList<>();
+        // Bảng lớn trước để worker không phải chờ bảng lớn cuối cùng
+        List<TableInfo> ordered = new ArrayList<>(tables);
+        ordered.sort(Collections.reverseOrder((a, b) -> Long.compare(a.estimatedRows(), b.estimatedRows())));
+
+        for (TableInfo table : ordered) {
+            List<String> conditions = List.of();
+            if (table.primaryKey().size() == 1 && table.estimatedRows() > chunkRows) {
+                String pk = table.primaryKey().get(0);
+                boolean integerKey = table.columns().stream()
+                        .anyMatch(c -> c.name().equals(pk) && INTEGER_TYPES.contains(c.dataType()));
+                if (integerKey) {
+                    conditions = rangeConditions(meta, table, pk);
+                }
+            }
+            if (conditions.isEmpty()) {
+                tasks.add(new ChunkTask(table, 0, null));
+            } else {
+                for (int i = 0; i < conditions.size(); i++) {
+                    tasks.add(new ChunkTask(table, i, conditions.get(i)));
+                }
+            }
+        }
+        return tasks;
+    }
+
+    private List<String> rangeConditions(JdbcTemplate meta, TableInfo table, String pk) {
+        Map<String, Object> bounds = meta.queryForMap(String.format("SELECT CAST(MIN(%1$s) AS CHAR) AS lo, CAST(MAX(%1$s) AS CHAR) AS hi FROM %2$s",
+                quote(pk), quote(table.name())));
+        if (bounds.get("lo") == null || bounds.get("hi") == null) {
+            return List.of();
+        }
+        BigInteger lo = new BigInteger(bounds.get("lo").toString());
+        BigInteger hi = new BigInteger(bounds.get("hi").toString());
+        long count = (table.estimatedRows() + chunkRows - 1) / chunkRows;
+        BigInteger span = hi.subtract(lo).add(BigInteger.ONE);
+        BigInteger step = span.add(BigInteger.valueOf(count - 1)).divide(BigInteger.valueOf(count));
+        if (count <= 1 || step.signum() <= 0) {
+            return List.of();
+        }
+
+        List<BigInteger> boundaries = new ArrayList<>();
+        for (long i = 1; i < count; i++) {
+            BigInteger boundary = lo.add(step.multiply(BigInteger.valueOf(i)));
+            if (boundary.compareTo(hi) > 0) {
+                break;
+            }
+            boundaries.add(boundary);
+        }
+        if (boundaries.isEmpty()) {
+            return List.of();
+        }
+
+        // Chunk đầu không có cận dưới, chunk cuối không có cận trên
+        String column = quote(pk);
+        List<String> conditions = new ArrayList<>();
+        conditions.add(column + " < " + boundaries.get(0));
+        for (int i = 1; i < boundaries.size(); i++) {
+            conditions.add(column + " >= " + boundaries.get(i - 1) + " AND " + column + " < " + boundaries.get(i));
+        }
+        conditions.add(column + " >= " + boundaries.get(boundaries.size() - 1));
+        return conditions;
+    }
+
+    private BackupManifest.BinlogPosition readBinlogPosition(JdbcTemplate meta) {
+        try {
+            List<BackupManifest.BinlogPosition> status = meta.query("SHOW MASTER STATUS",
+                    (rs, rowNum) -> new BackupManifest.BinlogPosition(rs.getString("File"), rs.getLong("Position"), null));
+            if (status.isEmpty()) {
+                // log_bin tắt
+                return null;
+            }
+            String gtid = meta.queryForObject("SELECT @@GLOBAL.gtid_binlog_pos", String.class);
+            return new BackupManifest.BinlogPosition(status.get(0).file(), status.get(0).position(), gtid);
+        } catch (Exception e) {
+            log.warn("Không đọc được vị trí binlog: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Connection openSnapshot(Db db) throws SQLException {
+        Connection connection = connect(db);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET SESSION TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+            statement.execute("SET SESSION time_zone = '+00:00'");
+            // Upload S3 có thể chậm hơn tốc độ đọc, tránh server cắt kết nối khi đang stream
+            statement.execute("SET SESSION net_write_timeout = 3600");
+            statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+        return connection;
+    }
+
+    private Connection connect(Db db) throws SQLException {
+        String url = String.format("jdbc:mariadb://%s:%d/%s?tinyInt1isBit=false&yearIsDateType=false",
+                db.getHostname(), db.getPort(), db.getName());
+        return DriverManager.getConnection(url, mariadbUsername, mariadbPassword);
+    }
+
+    private static String stripDefiner(String create) {
+        return DEFINER.matcher(create).replaceFirst("");
+    }
+
+    private static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Không thể đóng connection dump: {}", e.getMessage());
+        }
+    }
+}
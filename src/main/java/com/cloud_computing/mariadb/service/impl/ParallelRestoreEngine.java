@@ -0,0 +1,331 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.dto.RestoreReportDTO;
+import com.cloud_computing.mariadb.entity.Db;
+import com.cloud_computing.mariadb.entity.DbUser;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Restore backup dạng CHUNKED: tạo schema trước (chưa có index phụ), nạp các chunk dữ liệu
+ * song song trên nhiều connection của pool tenant, sau đó tạo index phụ và view/routine/trigger/event.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ParallelRestoreEngine {
+    static final Pattern CREATE_TABLE = Pattern.compile("^CREATE TABLE `((?:[^`]|``)+)`", Pattern.CASE_INSENSITIVE);
+    static final Pattern REFERENCES = Pattern.compile("REFERENCES `((?:[^`]|``)+)`", Pattern.CASE_INSENSITIVE);
+    // Chỉ hoãn index thường; FULLTEXT/SPATIAL giữ trong CREATE TABLE vì InnoDB chỉ thêm được từng cái một
+    static final Pattern SECONDARY_KEY = Pattern.compile("^(KEY|INDEX)\\s", Pattern.CASE_INSENSITIVE);
+
+    @FunctionalInterface
+    public interface PartOpener {
+        InputStream open(String key) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface WorkerAction<T> {
+        void run(JdbcTemplate template, T item) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface SessionAction {
+        void run(JdbcTemplate template) throws Exception;
+    }
+
+    record SchemaPlan(String sql, Map<String, List<String>> deferredIndexes) {
+    }
+
+    record ChunkTask(TableState table, BackupManifest.Part part) {
+    }
+
+    static final class TableState {
+        final String name;
+        final int chunks;
+        final long rows;
+        final AtomicInteger chunksDone = new AtomicInteger();
+        final AtomicLong rowsDone = new AtomicLong();
+        final long start = System.currentTimeMillis();
+        volatile long end;
+        int deferredIndexes;
+
+        TableState(BackupManifest.TableEntry entry) {
+            this.name = entry.name();
+            this.chunks = entry.chunks().size();
+            this.rows = entry.chunks().stream().mapToLong(BackupManifest.Part::rows).sum();
+        }
+
+        RestoreReportDTO.TableProgress toProgress() {
+            return RestoreReportDTO.TableProgress.builder()
+                    .name(name)
+                    .chunks(chunks)
+                    .chunksDone(chunksDone.get())
+                    .rows(rows)
+                    .rowsDone(rowsDone.get())
+                    .deferredIndexes(deferredIndexes)
+                    .elapsedMs((end > 0 ? end : System.currentTimeMillis()) - start)
+                    .build();
+        }
+    }
+
+    final TenantDataSourceRegistry tenantDataSourceRegistry;
+    final SqlScriptExecutor sqlScriptExecutor;
+
+    @Value("${backup.restore.threads:3}")
+    int threads;
+
+    public RestoreReportDTO restore(Db db, DbUser dbUser, BackupManifest manifest, PartOpener opener,
+                                    JobProgress progress) throws Exception {
+        long start = System.currentTimeMillis();
+        AtomicReference<SqlScriptExecutor.ScriptResult> result = new AtomicReference<>(SqlScriptExecutor.ScriptResult.empty());
+        Map<String, TableState> tables = new LinkedHashMap<>();
+        for (BackupManifest.TableEntry entry : manifest.tables()) {
+            tables.put(entry.name(), new TableState(entry));
+        }
+        progress.setTables(() -> tables.values().stream().map(TableState::toProgress).toList());
+
+        // 1. Schema: xóa object cũ, tạo bảng chưa có index phụ
+        setPhase(db, progress, "SCHEMA");
+        String schemaSql;
+        try (InputStream in = opener.open(manifest.schema().key())) {
+            schemaSql = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        SchemaPlan plan = deferSecondaryIndexes(schemaSql);
+        plan.deferredIndexes().forEach((table, indexes) -> {
+            TableState state = tables.get(table);
+            if (state != null) {
+                state.deferredIndexes = indexes.size();
+            }
+        });
+        runIsolated(db, dbUser, template -> {
+            sqlScriptExecutor.dropAllDatabaseObjects(template, db.getName());
+            merge(result, sqlScriptExecutor.executeStatements(template,
+                    new ByteArrayInputStream(plan.sql().getBytes(StandardCharsets.UTF_8)), progress));
+        });
+
+        // 2. Dữ liệu: chunk lớn trước để các worker kết thúc gần cùng lúc
+        setPhase(db, progress, "DATA");
+        List<ChunkTask> chunks = new ArrayList<>();
+        for (BackupManifest.TableEntry entry : manifest.tables()) {
+            for (BackupManifest.Part part : entry.chunks()) {
+                chunks.add(new ChunkTask(tables.get(entry.name()), part));
+            }
+        }
+        chunks.sort(Comparator.comparingLong((ChunkTask task) -> task.part().bytes()).reversed());
+        int workerCount = Math.max(1, Math.min(threads, tenantDataSourceRegistry.getPoolSize()));
+        runParallel(db, dbUser, chunks, workerCount, (template, task) -> {
+            try (InputStream in = opener.open(task.part().key())) {
+                merge(result, sqlScriptExecutor.executeStatements(template, in, progress));
+            }
+            TableState table = task.table();
+            table.rowsDone.addAndGet(task.part().rows());
+            if (table.chunksDone.incrementAndGet() == table.chunks) {
+                table.end = System.currentTimeMillis();
+                log.info("Restore {}.{}: {} dòng, {} chunk trong {} ms", db.getName(), table.name,
+                        table.rows, table.chunks, table.end - table.start);
+            }
+        });
+
+        // 3. Index phụ: mỗi bảng một ALTER TABLE gộp tất cả index để chỉ build lại một lần
+        setPhase(db, progress, "INDEXES");
+        runParallel(db, dbUser, new ArrayList<>(plan.deferredIndexes().entrySet()), workerCount, (template, entry) -> {
+            progress.checkCancelled();
+            String alter = "ALTER TABLE " + quote(entry.getKey()) + " " + String.join(", ",
+                    entry.getValue().stream().map(index -> "ADD " + index).toList());
+            template.execute(alter);
+        });
+
+        // 4. View, routine, trigger, event
+        setPhase(db, progress, "POST");
+        runIsolated(db, dbUser, template -> {
+            try (InputStream in = opener.open(manifest.post().key())) {
+                merge(result, sqlScriptExecutor.executeStatements(template, in, progress));
+            }
+        });
+
+        return RestoreReportDTO.builder()
+                .threads(workerCount)
+                .statementsExecuted(result.get().executed())
+                .statementsFailed(result.get().failed())
+                .errors(result.get().errors())
+                .elapsedMs(System.currentTimeMillis() - start)
+                .tables(tables.values().stream().map(TableState::toProgress).toList())
+                .build();
+    }
+
+    private static void setPhase(Db db, JobProgress progress, String phase) {
+        progress.checkCancelled();
+        progress.setPhase(phase);
+        log.info("Restore {}: {}", db.getName(), phase);
+    }
+
+    /**
+     * Chạy các item trên {@code workerCount} connection riêng, mỗi connection tắt unique/foreign key checks.
+     * Một worker lỗi thì các worker khác dừng sau item đang chạy.
+     */
+    private <T> void runParallel(Db db, DbUser dbUser, List<T> items, int workerCount, WorkerAction<T> action) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+        ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>(items);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        int count = Math.min(workerCount, items.size());
+        ExecutorService pool = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                futures.add(pool.submit(() -> {
+                    runIsolated(db, dbUser, template -> {
+                        T item;
+                        while (!failed.get() && (item = queue.poll()) != null) {
+                            try {
+                                action.run(template, item);
+                            } catch (Exception e) {
+                                failed.set(true);
+                                throw e;
+                            }
+                        }
+                    });
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void runIsolated(Db db, DbUser dbUser, SessionAction action) throws Exception {
+        try {
+            tenantDataSourceRegistry.executeIsolated(db, dbUser, TenantDataSourceRegistry.ConnectionProfile.MULTI_QUERIES,
+                    (ConnectionCallback<Void>) connection -> {
+                JdbcTemplate template = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                // Biến session, connection bị bỏ sau khi xong nên không ảnh hưởng pool
+                template.execute("SET FOREIGN_KEY_CHECKS = 0");
+                template.execute("SET UNIQUE_CHECKS = 0");
+                try {
+                    action.run(template);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e.getMessage(), e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Bỏ KEY/INDEX thường khỏi CREATE TABLE để tạo sau khi nạp dữ liệu.
+     * Bảng có foreign key (ở cả hai phía) giữ nguyên vì foreign key cần index ngay khi tạo.
+     */
+    static SchemaPlan deferSecondaryIndexes(String schemaSql) {
+        String[] lines = schemaSql.split("\n", -1);
+
+        Set<String> foreignKeyTables = new HashSet<>();
+        String current = null;
+        for (String line : lines) {
+            Matcher create = CREATE_TABLE.matcher(line);
+            if (create.find()) {
+                current = unquote(create.group(1));
+            } else if (current != null && line.contains("FOREIGN KEY")) {
+                foreignKeyTables.add(current);
+                Matcher ref = REFERENCES.matcher(line);
+                if (ref.find()) {
+                    foreignKeyTables.add(unquote(ref.group(1)));
+                }
+            } else if (line.startsWith(")")) {
+                current = null;
+            }
+        }
+
+        Map<String, List<String>> deferred = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder(schemaSql.length());
+        List<String> definitions = new ArrayList<>();
+        current = null;
+        for (String line : lines) {
+            if (current == null) {
+                Matcher create = CREATE_TABLE.matcher(line);
+                if (create.find() && line.trim().endsWith("(")) {
+                    current = unquote(create.group(1));
+                    definitions.clear();
+                }
+                sql.append(line).append('\n');
+                continue;
+            }
+            if (line.startsWith(")")) {
+                // Ghép lại các định nghĩa còn lại, dấu phẩy cuối dòng tính lại từ đầu
+                for (int i = 0; i < definitions.size(); i++) {
+                    sql.append(definitions.get(i)).append(i < definitions.size() - 1 ? ",\n" : "\n");
+                }
+                sql.append(line).append('\n');
+                current = null;
+                continue;
+            }
+            String definition = line.endsWith(",") ? line.substring(0, line.length() - 1) : line;
+            if (!foreignKeyTables.contains(current) && SECONDARY_KEY.matcher(definition.trim()).find()) {
+                deferred.computeIfAbsent(current, k -> new ArrayList<>()).add(definition.trim());
+            } else {
+                definitions.add(definition);
+            }
+        }
+        // split(-1) giữ phần sau '\n' cuối cùng, bỏ '\n' thừa vừa thêm
+        sql.setLength(Math.max(0, sql.length() - 1));
+        return new SchemaPlan(sql.toString(), deferred);
+    }
+
+    private static void merge(AtomicReference<SqlScriptExecutor.ScriptResult> total, SqlScriptExecutor.ScriptResult part) {
+        total.accumulateAndGet(part, SqlScriptExecutor.ScriptResult::plus);
+    }
+
+    private static String unquote(String identifier) {
+        return identifier.replace("``", "`");
+    }
+
+    private static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+}
@@ -0,0 +1,76 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * stdout của một process (mysqldump, mysqlbinlog); khi đọc hết sẽ chờ process kết thúc và báo lỗi
+ * nếu exit code khác 0, nhờ vậy upload bị abort thay vì lưu một file dở dang.
+ * stderr được đọc song song để process không bị block khi buffer đầy.
+ */
+class ProcessInputStream extends FilterInputStream {
+    final Process process;
+    final String command;
+    final StringBuilder errorOutput = new StringBuilder();
+    final Thread errorReader;
+
+    ProcessInputStream(Process process, String command) {
+        super(process.getInputStream());
+        this.process = process;
+        this.command = command;
+        this.errorReader = Thread.ofVirtual().start(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    synchronized (errorOutput) {
+                        if (errorOutput.length() < 8192) {
+                            errorOutput.append(line).append("\n");
+                        }
+                    }
+                }
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b < 0) {
+            checkExit();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n < 0) {
+            checkExit();
+        }
+        return n;
+    }
+
+    private void checkExit() throws IOException {
+        try {
+            int exitCode = process.waitFor();
+            errorReader.join();
+            if (exitCode != 0) {
+                String errorLog;
+                synchronized (errorOutput) {
+                    errorLog = errorOutput.isEmpty() ? "No error output" : errorOutput.toString();
+                }
+                throw new IOException(command + " failed with exit code: " + exitCode +
+                        "\nError: " + errorLog);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(command + " bị gián đoạn");
+        }
+    }
+}
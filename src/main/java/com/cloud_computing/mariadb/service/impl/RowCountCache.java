@@ -0,0 +1,38 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.util.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache số dòng (COUNT(*)) theo từng bảng của tenant.
+ * Bị xóa khi dữ liệu bảng thay đổi qua API (insert/delete/drop/restore).
+ */
+@Component
+public class RowCountCache {
+    record Key(Long dbId, String tableName) {
+    }
+
+    final TtlCache<Key, Long> cache;
+
+    public RowCountCache(@Value("${table.row-count.cache-size:10000}") int maxSize,
+                         @Value("${table.row-count.cache-ttl-ms:60000}") long ttlMs) {
+        this.cache = new TtlCache<>(maxSize, ttlMs);
+    }
+
+    public Long get(Long dbId, String tableName) {
+        return cache.get(new Key(dbId, tableName));
+    }
+
+    public void put(Long dbId, String tableName, long count) {
+        cache.put(new Key(dbId, tableName), count);
+    }
+
+    public void invalidate(Long dbId, String tableName) {
+        cache.invalidate(new Key(dbId, tableName));
+    }
+
+    public void invalidateDb(Long dbId) {
+        cache.invalidateIf(key -> key.dbId().equals(dbId));
+    }
+}
@@ -0,0 +1,373 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.BlockingInputStreamAsyncRequestBody;
+import software.amazon.awssdk.core.async.BlockingOutputStreamAsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.Upload;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
+import software.amazon.awssdk.utils.CancellableOutputStream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Upload/download/xóa object qua {@link S3AsyncClient} (CRT) và {@link S3TransferManager}.
+ * Part size, số request đồng thời và throughput mục tiêu cấu hình ở {@code aws.s3.transfer}.
+ * Thread gọi chỉ đẩy/đọc stream, I/O mạng chạy trên event loop của CRT nên nhiều transfer chạy song song
+ * mà không cần một thread cho mỗi transfer hay mỗi part.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class S3AsyncTransfer {
+    static final int MAX_KEYS_PER_DELETE = 1000;
+    // Gom các lần ghi nhỏ (ví dụ 512 byte của GZIP) trước khi đẩy vào request body
+    static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    final S3AsyncClient s3AsyncClient;
+    final S3TransferManager s3TransferManager;
+
+    @Value("${aws.s3.bucket-name}")
+    String bucketName;
+
+    /**
+     * Đọc hết {@code in} (không cần biết trước kích thước) và lưu vào {@code key}, trả về số byte đã upload.
+     * Stream lỗi thì upload bị hủy (multipart upload bị abort), không có object nào được tạo.
+     */
+    public long upload(String key, String contentType, InputStream in) throws IOException {
+        BlockingInputStreamAsyncRequestBody body = AsyncRequestBody.forBlockingInputStream(null);
+        Upload upload = s3TransferManager.upload(UploadRequest.builder()
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build())
+                .requestBody(body)
+                .build());
+        long[] count = new long[1];
+        try {
+            body.writeInputStream(new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        count[0]++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        count[0] += n;
+                    }
+                    return n;
+                }
+            });
+        } catch (RuntimeException e) {
+            upload.completionFuture().cancel(true);
+            // writeInputStream bọc lỗi đọc stream (ví dụ mysqldump lỗi) trong UncheckedIOException
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+        await(upload.completionFuture());
+        if (count[0] == 0) {
+            delete(key);
+            throw new IOException("Không có dữ liệu để upload");
+        }
+        return count[0];
+    }
+
+    /**
+     * Mở {@code key} để ghi, dữ liệu được upload ngay trong lúc ghi (multipart khi vượt part size).
+     * {@link UploadStream#close()} hoàn tất upload, {@link UploadStream#abort()} hủy upload khi có lỗi.
+     */
+    public UploadStream openUpload(String key, String contentType) {
+        BlockingOutputStreamAsyncRequestBody body = AsyncRequestBody.forBlockingOutputStream(null);
+        Upload upload = s3TransferManager.upload(UploadRequest.builder()
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build())
+                .requestBody(body)
+                .build());
+        return new UploadStream(key, upload, body.outputStream());
+    }
+
+    /**
+     * PUT một object nhỏ đã có sẵn trong bộ nhớ, không chờ kết quả.
+     */
+    public CompletableFuture<?> putAsync(String key, String contentType, byte[] data) {
+        return s3AsyncClient.putObject(PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build(), AsyncRequestBody.fromBytes(data));
+    }
+
+    /**
+     * Tải cả object vào bộ nhớ, không chờ kết quả.
+     */
+    public CompletableFuture<byte[]> getBytesAsync(String key) {
+        return s3AsyncClient.getObject(GetObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build(), AsyncResponseTransformer.toBytes())
+                .thenApply(ResponseBytes::asByteArray);
+    }
+
+    public InputStream open(String key) throws IOException {
+        return get(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    /**
+     * {@code range} theo cú pháp HTTP, ví dụ {@code bytes=0-1023}.
+     */
+    public InputStream open(String key, String range) throws IOException {
+        return get(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range(range)
+                .build());
+    }
+
+    public void delete(String key) throws IOException {
+        await(s3AsyncClient.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build()));
+    }
+
+    /**
+     * Liệt kê mọi object (key, kích thước, thời điểm sửa) dưới prefix.
+     */
+    public List<S3Object> list(String prefix) throws IOException {
+        List<S3Object> objects = new ArrayList<>();
+        // Các trang được đẩy tuần tự nên không cần đồng bộ
+        await(s3AsyncClient.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .build()).contents().subscribe(objects::add));
+        return objects;
+    }
+
+    public List<String> listKeys(String prefix) throws IOException {
+        return list(prefix).stream().map(S3Object::key).toList();
+    }
+
+    /**
+     * Xóa các key theo lô DeleteObjects (tối đa 1000 key mỗi request), các lô chạy song song.
+     * Trả về danh sách key không xóa được (key không tồn tại không tính là lỗi).
+     */
+    public List<String> deleteKeys(Collection<String> keys) throws IOException {
+        List<CompletableFuture<List<String>>> batches = new ArrayList<>();
+        List<ObjectIdentifier> batch = new ArrayList<>(Math.min(keys.size(), MAX_KEYS_PER_DELETE));
+        for (String key : keys) {
+            batch.add(ObjectIdentifier.builder().key(key).build());
+            if (batch.size() == MAX_KEYS_PER_DELETE) {
+                batches.add(deleteBatch(batch));
+                batch = new ArrayList<>(MAX_KEYS_PER_DELETE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(deleteBatch(batch));
+        }
+        List<String> failed = new ArrayList<>();
+        for (CompletableFuture<List<String>> future : batches) {
+            failed.addAll(await(future));
+        }
+        return failed;
+    }
+
+    /**
+     * Xóa mọi object dưới prefix: mỗi trang list (tối đa 1000 key) được xóa bằng một DeleteObjects,
+     * các lô chạy song song trong lúc vẫn đang list.
+     */
+    public void deletePrefix(String prefix) throws IOException {
+        List<CompletableFuture<?>> deletes = Collections.synchronizedList(new ArrayList<>());
+        await(s3AsyncClient.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .build()).subscribe(page -> {
+            if (page.contents().isEmpty()) {
+                return;
+            }
+            deletes.add(deleteBatch(page.contents().stream()
+                    .map(object -> ObjectIdentifier.builder().key(object.key()).build())
+                    .toList()));
+        }));
+        await(CompletableFuture.allOf(deletes.toArray(CompletableFuture[]::new)));
+    }
+
+    private CompletableFuture<List<String>> deleteBatch(List<ObjectIdentifier> batch) {
+        return s3AsyncClient.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder().objects(batch).quiet(true).build())
+                .build()).thenApply(response -> response.errors().stream()
+                // quiet = true: response chỉ chứa các key lỗi
+                .map(error -> {
+                    log.warn("Không thể xóa {}: {} {}", error.key(), error.code(), error.message());
+                    return error.key();
+                })
+                .toList());
+    }
+
+    private InputStream get(GetObjectRequest request) throws IOException {
+        return await(s3AsyncClient.getObject(request, AsyncResponseTransformer.toBlockingInputStream()));
+    }
+
+    /**
+     * Chờ kết quả; lỗi của SDK (S3Exception...) được ném lại nguyên dạng như khi dùng client đồng bộ.
+     */
+    static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Transfer S3 bị gián đoạn");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Object đang được upload. Ghi không thread-safe, giống mọi OutputStream.
+     */
+    public static class UploadStream extends OutputStream {
+        final String key;
+        final Upload upload;
+        final CancellableOutputStream out;
+        final byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+        int position;
+        long bytesWritten;
+        boolean closed;
+
+        UploadStream(String key, Upload upload, CancellableOutputStream out) {
+            this.key = key;
+            this.upload = upload;
+            this.out = out;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            if (position == buffer.length) {
+                drain();
+            }
+            buffer[position++] = (byte) b;
+            bytesWritten++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                if (position == buffer.length) {
+                    drain();
+                }
+                int n = Math.min(len, buffer.length - position);
+                System.arraycopy(b, off, buffer, position, n);
+                position += n;
+                off += n;
+                len -= n;
+                bytesWritten += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                drain();
+                closed = true;
+                out.close();
+                await(upload.completionFuture());
+            } catch (IOException | RuntimeException e) {
+                abort();
+                throw e;
+            }
+        }
+
+        /**
+         * Hủy upload, các part đã gửi bị xóa khỏi S3. Gọi được nhiều lần.
+         */
+        public void abort() {
+            closed = true;
+            out.cancel();
+            upload.completionFuture().cancel(true);
+        }
+
+        private void drain() throws IOException {
+            if (position == 0) {
+                return;
+            }
+            try {
+                out.write(buffer, 0, position);
+            } catch (RuntimeException e) {
+                // Upload đã lỗi hoặc bị hủy: lỗi thật nằm ở completionFuture
+                if (upload.completionFuture().isCompletedExceptionally()) {
+                    await(upload.completionFuture());
+                }
+                throw e;
+            }
+            position = 0;
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Upload đã đóng: " + key);
+            }
+        }
+    }
+}
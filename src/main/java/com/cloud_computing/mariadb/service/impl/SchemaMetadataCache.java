@@ -0,0 +1,50 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.util.TtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache cấu trúc bảng (DESCRIBE, SHOW INDEX, SHOW CREATE TABLE) của tenant theo (dbId, table).
+ * Bị xóa khi DDL chạy qua API hoặc khi restore/import; DDL chạy trực tiếp từ client
+ * của tenant chỉ được nhìn thấy sau khi hết TTL.
+ */
+@Component
+public class SchemaMetadataCache {
+    record Key(Long dbId, String tableName) {
+    }
+
+    public record TableMetadata(List<Map<String, Object>> columns,
+                                List<Map<String, Object>> indexes,
+                                String createStatement) {
+    }
+
+    final TtlCache<Key, TableMetadata> cache;
+
+    public SchemaMetadataCache(@Value("${table.metadata.cache-size:5000}") int maxSize,
+                               @Value("${table.metadata.cache-ttl-ms:600000}") long ttlMs) {
+        this.cache = new TtlCache<>(maxSize, ttlMs);
+    }
+
+    public TableMetadata get(Long dbId, String tableName, Supplier<TableMetadata> loader) {
+        Key key = new Key(dbId, tableName);
+        TableMetadata metadata = cache.get(key);
+        if (metadata == null) {
+            metadata = loader.get();
+            cache.put(key, metadata);
+        }
+        return metadata;
+    }
+
+    public void invalidate(Long dbId, String tableName) {
+        cache.invalidate(new Key(dbId, tableName));
+    }
+
+    public void invalidateDb(Long dbId) {
+        cache.invalidateIf(key -> key.dbId().equals(dbId));
+    }
+}
@@ -0,0 +1,215 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.entity.Db;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Đổi các bảng giữa hai database bằng một lệnh {@code RENAME TABLE} duy nhất: server thực hiện atomic
+ * và chỉ đổi metadata, không copy dữ liệu.
+ * Dùng sau khi restore vào database mới: database gốc nhận các bảng đã restore, database mới giữ bảng cũ để rollback.
+ * <p>
+ * Chạy bằng user admin vì user của tenant chỉ có quyền trên database của mình.
+ */
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SchemaSwapper {
+    static final String TEMP_PREFIX = "__swap_";
+
+    @Value("${spring.datasource.secondary.username}")
+    String mariadbUsername;
+
+    @Value("${spring.datasource.secondary.password}")
+    String mariadbPassword;
+
+    // RENAME TABLE chờ metadata lock của mọi bảng: giới hạn thời gian chờ để không chặn request của tenant quá lâu
+    @Value("${backup.restore.swap-lock-wait-timeout-seconds:10}")
+    int lockWaitTimeoutSeconds;
+
+    /**
+     * Số bảng được đổi chỗ (có ở cả hai bên) và được chuyển sang bên kia (chỉ có ở một bên).
+     */
+    public record SwapResult(int swapped, int moved) {
+    }
+
+    /**
+     * Trigger đã bị xóa trước khi đổi bảng, giữ định nghĩa để tạo lại nếu đổi bảng thất bại.
+     */
+    private record TriggerDefinition(String schema, String name, String sqlMode, String statement) {
+    }
+
+    /**
+     * Đổi toàn bộ bảng (không tính view) giữa {@code source} và {@code target}.
+     * Trigger của cả hai database bị xóa trước (MariaDB không cho chuyển bảng có trigger sang database khác),
+     * người gọi tạo lại trigger, routine cho database gốc. Nếu đổi bảng thất bại thì trigger được tạo lại
+     * như cũ và hai database giữ nguyên.
+     */
+    public SwapResult swap(Db source, Db target) throws SQLException {
+        try (Connection connection = connect(source)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET SESSION lock_wait_timeout = " + lockWaitTimeoutSeconds);
+            }
+            Set<String> sourceTables = listTables(connection, source.getName());
+            Set<String> targetTables = listTables(connection, target.getName());
+            List<TriggerDefinition> triggers = new ArrayList<>(readTriggers(connection, source.getName()));
+            triggers.addAll(readTriggers(connection, target.getName()));
+            long start = System.currentTimeMillis();
+            try {
+                SwapResult result = swapTables(connection, source, target, sourceTables, targetTables, triggers);
+                log.info("Đổi {} bảng, chuyển {} bảng giữa {} và {} trong {} ms", result.swapped(), result.moved(),
+                        source.getName(), target.getName(), System.currentTimeMillis() - start);
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                restoreTriggers(connection, triggers, e);
+                throw e;
+            }
+        }
+    }
+
+    private SwapResult swapTables(Connection connection, Db source, Db target, Set<String> sourceTables,
+                                  Set<String> targetTables, List<TriggerDefinition> triggers) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (TriggerDefinition trigger : triggers) {
+                statement.execute("DROP TRIGGER IF EXISTS " + quote(trigger.schema()) + "." + quote(trigger.name()));
+            }
+        }
+
+        List<String> renames = new ArrayList<>();
+        int swapped = 0;
+        int moved = 0;
+        int temp = 0;
+        for (String table : sourceTables) {
+            if (targetTables.contains(table)) {
+                // Đổi chỗ qua tên tạm trong database đích
+                String tempName;
+                do {
+                    tempName = TEMP_PREFIX + temp++;
+                } while (targetTables.contains(tempName));
+                renames.add(rename(source.getName(), table, target.getName(), tempName));
+                renames.add(rename(target.getName(), table, source.getName(), table));
+                renames.add(rename(target.getName(), tempName, target.getName(), table));
+                swapped++;
+            } else {
+                renames.add(rename(source.getName(), table, target.getName(), table));
+                moved++;
+            }
+        }
+        for (String table : targetTables) {
+            if (!sourceTables.contains(table)) {
+                renames.add(rename(target.getName(), table, source.getName(), table));
+                moved++;
+            }
+        }
+        if (renames.isEmpty()) {
+            return new SwapResult(0, 0);
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("RENAME TABLE " + String.join(", ", renames));
+        }
+        return new SwapResult(swapped, moved);
+    }
+
+    private Set<String> listTables(Connection connection, String schema) throws SQLException {
+        Set<String> tables = new LinkedHashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT TABLE_NAME FROM information_schema.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE'")) {
+            statement.setString(1, schema);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    tables.add(rs.getString(1));
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Định nghĩa trigger theo thứ tự chạy (ACTION_ORDER), tạo lại theo thứ tự này thì giữ nguyên thứ tự.
+     */
+    private List<TriggerDefinition> readTriggers(Connection connection, String schema) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT TRIGGER_NAME FROM information_schema.TRIGGERS WHERE TRIGGER_SCHEMA = ? " +
+                        "ORDER BY EVENT_OBJECT_TABLE, EVENT_MANIPULATION, ACTION_TIMING, ACTION_ORDER")) {
+            statement.setString(1, schema);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        List<TriggerDefinition> triggers = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            for (String name : names) {
+                try (ResultSet rs = statement.executeQuery("SHOW CREATE TRIGGER " + quote(schema) + "." + quote(name))) {
+                    if (rs.next()) {
+                        triggers.add(new TriggerDefinition(schema, name, rs.getString("sql_mode"),
+                                rs.getString("SQL Original Statement")));
+                    }
+                }
+            }
+        }
+        return triggers;
+    }
+
+    /**
+     * Tạo lại trigger sau khi đổi bảng thất bại; lỗi khi tạo lại được gắn vào lỗi gốc.
+     */
+    private void restoreTriggers(Connection connection, List<TriggerDefinition> triggers, Exception cause) {
+        try (Statement statement = connection.createStatement()) {
+            String sqlMode;
+            try (ResultSet rs = statement.executeQuery("SELECT @@SESSION.sql_mode")) {
+                rs.next();
+                sqlMode = rs.getString(1);
+            }
+            try (PreparedStatement setMode = connection.prepareStatement("SET SESSION sql_mode = ?")) {
+                for (TriggerDefinition trigger : triggers) {
+                    try {
+                        // Câu CREATE TRIGGER gốc không ghi tên database, chạy trong database của trigger
+                        statement.execute("USE " + quote(trigger.schema()));
+                        setMode.setString(1, trigger.sqlMode());
+                        setMode.execute();
+                        statement.execute("DROP TRIGGER IF EXISTS " + quote(trigger.name()));
+                        statement.execute(trigger.statement());
+                    } catch (SQLException e) {
+                        log.error("Không thể tạo lại trigger {}.{}: {}", trigger.schema(), trigger.name(), e.getMessage());
+                        cause.addSuppressed(e);
+                    }
+                }
+                setMode.setString(1, sqlMode);
+                setMode.execute();
+            }
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static String rename(String fromSchema, String fromTable, String toSchema, String toTable) {
+        return quote(fromSchema) + "." + quote(fromTable) + " TO " + quote(toSchema) + "." + quote(toTable);
+    }
+
+    private static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    private Connection connect(Db db) throws SQLException {
+        String url = String.format("jdbc:mariadb://%s:%d/%s", db.getHostname(), db.getPort(), db.getName());
+        return DriverManager.getConnection(url, mariadbUsername, mariadbPassword);
+    }
+}
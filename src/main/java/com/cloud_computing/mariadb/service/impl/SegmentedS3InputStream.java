@@ -0,0 +1,133 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Đọc khoảng byte [start, end] của nhiều object S3 ghép liền nhau như một file.
+ * Mỗi object chỉ được mở khi tới lượt, bằng GET có Range nên không tải phần nằm ngoài khoảng cần đọc;
+ * dữ liệu đi thẳng từ response của S3, không giữ object trong bộ nhớ.
+ * Object được đọc trọn vẹn và có {@code sha256} thì được kiểm tra, sai thì báo lỗi thay vì trả dữ liệu hỏng.
+ */
+class SegmentedS3InputStream extends InputStream {
+    /**
+     * {@code sha256}: SHA-256 của object, {@code contentSha256}: SHA-256 của nội dung đã giải nén (DEDUP).
+     */
+    record Segment(String key, long length, String sha256, String contentSha256) {
+    }
+
+    /**
+     * Mở {@code key} với Range HTTP ({@code bytes=a-b}).
+     */
+    @FunctionalInterface
+    interface RangeReader {
+        InputStream open(String key, String range) throws IOException;
+    }
+
+    final RangeReader reader;
+    final List<Segment> segments;
+    // Vị trí (trong file ghép) của byte đọc tiếp theo, end là vị trí sau byte cuối
+    long position;
+    final long end;
+    int index;
+    long segmentStart;
+    InputStream current;
+    // Chỉ khác null khi object hiện tại được đọc từ đầu tới cuối
+    MessageDigest digest;
+
+    SegmentedS3InputStream(RangeReader reader, List<Segment> segments, long start, long endInclusive) {
+        this.reader = reader;
+        this.segments = segments;
+        this.position = start;
+        this.end = endInclusive + 1;
+        // Bỏ qua các object nằm trước start
+        while (index < segments.size() && segmentStart + segments.get(index).length() <= start) {
+            segmentStart += segments.get(index).length();
+            index++;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position < end) {
+            if (current == null) {
+                if (index >= segments.size()) {
+                    throw new IOException("Backup ngắn hơn kích thước đã lưu");
+                }
+                Segment segment = segments.get(index);
+                if (segment.length() == 0) {
+                    index++;
+                    continue;
+                }
+                long to = Math.min(end, segmentStart + segment.length()) - 1;
+                digest = segment.sha256() != null && position == segmentStart
+                        && to == segmentStart + segment.length() - 1 ? sha256() : null;
+                current = reader.open(segment.key(),
+                        "bytes=" + (position - segmentStart) + "-" + (to - segmentStart));
+            }
+            int n = current.read(b, off, (int) Math.min(len, end - position));
+            if (n < 0) {
+                current.close();
+                current = null;
+                Segment segment = segments.get(index);
+                long segmentEnd = segmentStart + segment.length();
+                if (position < Math.min(end, segmentEnd)) {
+                    throw new IOException("Object " + segment.key() + " ngắn hơn kích thước đã lưu");
+                }
+                segmentStart = segmentEnd;
+                index++;
+                continue;
+            }
+            position += n;
+            if (digest != null) {
+                // Kiểm tra ngay khi đọc đủ object, trước khi trả những byte cuối cho người đọc
+                digest.update(b, off, n);
+                Segment segment = segments.get(index);
+                if (position == segmentStart + segment.length()) {
+                    String actual = HexFormat.of().formatHex(digest.digest());
+                    digest = null;
+                    if (!actual.equals(segment.sha256())) {
+                        throw new IOException("Object " + segment.key() + " bị hỏng (SHA-256 không khớp)");
+                    }
+                }
+            }
+            return n;
+        }
+        return -1;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            // Hủy response thay vì đọc hết phần còn lại của object
+            if (current instanceof ResponseInputStream<?> response) {
+                response.abort();
+            }
+            current.close();
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.util.SqlStatementReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Chạy file SQL (dump, import) trên một connection của tenant.
+ */
+@Slf4j
+@Component
+public class SqlScriptExecutor {
+    static final int MAX_REPORTED_ERRORS = 20;
+    static final int MAX_STATEMENT_PREVIEW = 200;
+
+    /**
+     * Kết quả chạy một file SQL. Các câu lệnh lỗi không dừng việc chạy file nhưng được ghi lại.
+     */
+    public record ScriptResult(long executed, long failed, List<String> errors) {
+        public static ScriptResult empty() {
+            return new ScriptResult(0, 0, List.of());
+        }
+
+        public ScriptResult plus(ScriptResult other) {
+            List<String> merged = new ArrayList<>(errors);
+            other.errors().stream().limit(Math.max(0, MAX_REPORTED_ERRORS - merged.size())).forEach(merged::add);
+            return new ScriptResult(executed + other.executed(), failed + other.failed(), merged);
+        }
+    }
+
+    /**
+     * Bộ đếm khi chạy một file, gom lỗi để trả về trong {@link ScriptResult}.
+     */
+    static final class Counter {
+        final boolean failFast;
+        long executed;
+        long failed;
+        final List<String> errors = new ArrayList<>();
+
+        Counter(boolean failFast) {
+            this.failFast = failFast;
+        }
+
+        void fail(String sql, String message, long count) {
+            failed += count;
+            String error = preview(sql) + ": " + message;
+            if (failFast) {
+                throw new IllegalStateException("Dừng ở câu lệnh lỗi: " + error);
+            }
+            log.warn("Câu lệnh SQL lỗi: {}", error);
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        ScriptResult toResult() {
+            return new ScriptResult(executed, failed, errors);
+        }
+    }
+
+    // 1 = chạy từng câu lệnh với autocommit như trước
+    @Value("${backup.import.batch-size:500}")
+    int batchSize;
+
+    @Value("${backup.import.batch-bytes:4194304}")
+    long batchBytes;
+
+    @Value("${backup.import.transaction-size:5000}")
+    long transactionSize;
+
+    /**
+     * Thực thi lần lượt các câu lệnh trong file SQL trên {@code template}.
+     * Template phải gắn với một connection cố định (SingleConnectionDataSource) vì chế độ batch tắt autocommit.
+     */
+    public ScriptResult executeStatements(JdbcTemplate template, InputStream inputStream) throws IOException {
+        return executeStatements(template, inputStream, JobProgress.NONE);
+    }
+
+    /**
+     * Như trên, số câu lệnh được cộng dần vào {@code progress}; job bị hủy thì dừng trước câu lệnh tiếp theo.
+     */
+    public ScriptResult executeStatements(JdbcTemplate template, InputStream inputStream, JobProgress progress) throws IOException {
+        return executeStatements(template, inputStream, progress, null, false);
+    }
+
+    /**
+     * Như trên, dừng (không chạy) ở câu lệnh đầu tiên thỏa {@code stopBefore}; phần chưa commit lúc dừng bị rollback,
+     * nên {@code stopBefore} chỉ nên trả về true ở ranh giới transaction.
+     * {@code failFast}: câu lệnh lỗi đầu tiên làm rollback transaction đang mở và ném lỗi thay vì được bỏ qua;
+     * executor không tự commit giữa chừng, transaction do chính file quản lý (BEGIN/COMMIT của binlog).
+     */
+    public ScriptResult executeStatements(JdbcTemplate template, InputStream inputStream, JobProgress progress,
+                                          Predicate<String> stopBefore, boolean failFast) throws IOException {
+        SqlStatementReader reader = new SqlStatementReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        if (batchSize <= 1) {
+            return executeOneByOne(template, reader, progress, stopBefore, failFast);
+        }
+        try {
+            return template.execute((ConnectionCallback<ScriptResult>) connection -> {
+                try {
+                    return executeBatched(connection, reader, progress, stopBefore, failFast);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private ScriptResult executeOneByOne(JdbcTemplate template, SqlStatementReader reader, JobProgress progress,
+                                         Predicate<String> stopBefore, boolean failFast) throws IOException {
+        Counter counter = new Counter(failFast);
+        String sql;
+        while ((sql = reader.next()) != null) {
+            progress.checkCancelled();
+            if (stopBefore != null && stopBefore.test(sql)) {
+                // Transaction do file mở (BEGIN) chưa COMMIT thì bỏ
+                template.execute("ROLLBACK");
+                break;
+            }
+            try {
+                template.execute(sql);
+                counter.executed++;
+                progress.addStatements(1, 0);
+            } catch (DataAccessException e) {
+                counter.fail(sql, e.getMostSpecificCause().getMessage(), 1);
+                progress.addStatements(0, 1);
+            }
+        }
+        return counter.toResult();
+    }
+
+    /**
+     * Các câu DML liên tiếp được gom thành JDBC batch (driver gửi liền nhau, không chờ từng round trip),
+     * commit sau mỗi {@code transaction-size} câu thay vì sau từng câu.
+     * Câu lệnh khác (DDL, SET, routine) xả batch đang chờ rồi chạy riêng để giữ đúng thứ tự.
+     */
+    private ScriptResult executeBatched(Connection connection, SqlStatementReader reader, JobProgress progress,
+                                        Predicate<String> stopBefore, boolean failFast) throws SQLException, IOException {
+        Counter counter = new Counter(failFast);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            List<String> batch = new ArrayList<>();
+            long pendingBytes = 0;
+            long uncommitted = 0;
+            boolean stopped = false;
+            String sql;
+            while ((sql = reader.next()) != null) {
+                progress.checkCancelled();
+                if (stopBefore != null && stopBefore.test(sql)) {
+                    stopped = true;
+                    break;
+                }
+                if (isDml(sql)) {
+                    statement.addBatch(sql);
+                    batch.add(sql);
+                    pendingBytes += sql.length();
+                    if (batch.size() >= batchSize || pendingBytes >= batchBytes) {
+                        uncommitted += flush(statement, batch, counter, progress);
+                        pendingBytes = 0;
+                    }
+                } else {
+                    uncommitted += flush(statement, batch, counter, progress);
+                    pendingBytes = 0;
+                    try {
+                        statement.execute(sql);
+                        counter.executed++;
+                        progress.addStatements(1, 0);
+                    } catch (SQLException e) {
+                        if (isConnectionError(e)) {
+                            throw e;
+                        }
+                        counter.fail(sql, e.getMessage(), 1);
+                        progress.addStatements(0, 1);
+                    }
+                    uncommitted++;
+                }
+                if (!failFast && uncommitted >= transactionSize) {
+                    connection.commit();
+                    uncommitted = 0;
+                }
+            }
+            if (stopped) {
+                // Dừng sớm: không commit phần dở dang
+                statement.clearBatch();
+                batch.clear();
+                connection.rollback();
+            } else {
+                flush(statement, batch, counter, progress);
+                connection.commit();
+            }
+            return counter.toResult();
+        } catch (SQLException | IOException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Gửi batch đang chờ, trả về số câu lệnh đã gửi.
+     */
+    private int flush(Statement statement, List<String> batch, Counter counter, JobProgress progress) throws SQLException {
+        int size = batch.size();
+        if (size == 0) {
+            return 0;
+        }
+        try {
+            statement.executeBatch();
+            counter.executed += size;
+            progress.addStatements(size, 0);
+        } catch (BatchUpdateException e) {
+            // Driver tiếp tục các câu sau câu lỗi; câu không có update count coi như lỗi
+            int[] counts = e.getUpdateCounts();
+            int firstFailed = -1;
+            long failed = 0;
+            for (int i = 0; i < size; i++) {
+                if (counts == null || i >= counts.length || counts[i] == Statement.EXECUTE_FAILED) {
+                    failed++;
+                    if (firstFailed < 0) {
+                        firstFailed = i;
+                    }
+                }
+            }
+            counter.executed += size - failed;
+            counter.fail(batch.get(Math.max(firstFailed, 0)), e.getMessage(), Math.max(failed, 1));
+            progress.addStatements(size - failed, Math.max(failed, 1));
+        } finally {
+            statement.clearBatch();
+            batch.clear();
+        }
+        return size;
+    }
+
+    private static boolean isDml(String sql) {
+        return startsWithKeyword(sql, "INSERT") || startsWithKeyword(sql, "REPLACE")
+                || startsWithKeyword(sql, "UPDATE") || startsWithKeyword(sql, "DELETE");
+    }
+
+    private static boolean startsWithKeyword(String sql, String keyword) {
+        return sql.regionMatches(true, 0, keyword, 0, keyword.length())
+                && (sql.length() == keyword.length() || !Character.isLetterOrDigit(sql.charAt(keyword.length())));
+    }
+
+    /**
+     * SQLState lớp 08: mất kết nối, không thể chạy tiếp file.
+     */
+    private static boolean isConnectionError(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    private static String preview(String sql) {
+        return sql.length() <= MAX_STATEMENT_PREVIEW ? sql : sql.substring(0, MAX_STATEMENT_PREVIEW) + "...";
+    }
+
+    /**
+     * Xóa mọi bảng, procedure, function, trigger, event của database trước khi restore.
+     */
+    public void dropAllDatabaseObjects(JdbcTemplate template, String dbName) {
+        try {
+
+            List<String> tables = template.queryForList("SHOW TABLES", String.class);
+
+            for (String tableName : tables) {
+                try {
+                    template.execute("DROP TABLE IF EXISTS `" + tableName + "`");
+                } catch (Exception e) {
+                }
+            }
+
+            dropProgramObjects(template, dbName);
+        } catch (Exception e) {
+            throw new RuntimeException("Cannot drop database objects: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Xóa procedure, function, trigger, event (giữ bảng và view), trước khi chạy lại phần post của backup.
+     */
+    public void dropProgramObjects(JdbcTemplate template, String dbName) {
+        try {
+            List<Map<String, Object>> procedures = template.queryForList(
+                    "SELECT ROUTINE_NAME FROM information_schema.ROUTINES " +
+                            "WHERE ROUTINE_SCHEMA = ? AND ROUTINE_TYPE = 'PROCEDURE'",
+                    dbName);
+
+
+            for (Map<String, Object> proc : procedures) {
+                String procName = (String) proc.get("ROUTINE_NAME");
+                try {
+                    template.execute("DROP PROCEDURE IF EXISTS `" + procName + "`");
+                } catch (Exception e) {
+                }
+            }
+
+            List<Map<String, Object>> functions = template.queryForList(
+                    "SELECT ROUTINE_NAME FROM information_schema.ROUTINES " +
+                            "WHERE ROUTINE_SCHEMA = ? AND ROUTINE_TYPE = 'FUNCTION'",
+                    dbName);
+
+
+            for (Map<String, Object> func : functions) {
+                String funcName = (String) func.get("ROUTINE_NAME");
+                try {
+                    template.execute("DROP FUNCTION IF EXISTS `" + funcName + "`");
+                } catch (Exception e) {
+                }
+            }
+
+            List<Map<String, Object>> triggers = template.queryForList(
+                    "SELECT TRIGGER_NAME FROM information_schema.TRIGGERS " +
+                            "WHERE TRIGGER_SCHEMA = ?",
+                    dbName);
+
+
+            for (Map<String, Object> trig : triggers) {
+                String trigName = (String) trig.get("TRIGGER_NAME");
+                try {
+                    template.execute("DROP TRIGGER IF EXISTS `" + trigName + "`");
+                } catch (Exception e) {
+                }
+            }
+
+            List<Map<String, Object>> events = template.queryForList(
+                    "SELECT EVENT_NAME FROM information_schema.EVENTS " +
+                            "WHERE EVENT_SCHEMA = ?",
+                    dbName);
+
+
+            for (Map<String, Object> event : events) {
+                String eventName = (String) event.get("EVENT_NAME");
+                try {
+                    template.execute("DROP EVENT IF EXISTS `" + eventName + "`");
+                } catch (Exception e) {
+                }
+            }
+
+
+        } catch (Exception e) {
+            throw new RuntimeException("Cannot drop database objects: " + e.getMessage());
+        }
+    }
+}
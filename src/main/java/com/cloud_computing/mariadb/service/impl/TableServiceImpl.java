@@ -1,10 +1,13 @@
 package com.cloud_computing.mariadb.service.impl;
 
 import com.cloud_computing.mariadb.annotation.AuditLog;
+import com.cloud_computing.mariadb.dto.BulkImportDTO;
 import com.cloud_computing.mariadb.dto.ColumnCreateDTO;
 import com.cloud_computing.mariadb.dto.ColumnModifyDTO;
 import com.cloud_computing.mariadb.dto.RowDTO;
+import com.cloud_computing.mariadb.dto.RowWriteResultDTO;
 import com.cloud_computing.mariadb.dto.TableDataDTO;
+import com.cloud_computing.mariadb.dto.request.BulkImportRequest;
 import com.cloud_computing.mariadb.dto.request.TableAlterRequest;
 import com.cloud_computing.mariadb.dto.request.TableCreateRequest;
 import com.cloud_computing.mariadb.entity.Db;
@@ -12,6 +15,7 @@ import com.cloud_computing.mariadb.entity.DbMember;
 import com.cloud_computing.mariadb.entity.DbUser;
 import com.cloud_computing.mariadb.entity.User;
 import com.cloud_computing.mariadb.entity.enums.DbRole;
+import com.cloud_computing.mariadb.entity.enums.RowCountStrategy;
 import com.cloud_computing.mariadb.exception.BadRequestException;
 import com.cloud_computing.mariadb.exception.ResourceNotFoundException;
 import com.cloud_computing.mariadb.exception.UnauthorizedException;
@@ -20,22 +24,58 @@ import com.cloud_computing.mariadb.repository.DbRepository;
 import com.cloud_computing.mariadb.repository.DbUserRepository;
 import com.cloud_computing.mariadb.repository.UserRepository;
 import com.cloud_computing.mariadb.service.TableService;
+import com.cloud_computing.mariadb.service.impl.SchemaMetadataCache.TableMetadata;
 import com.cloud_computing.mariadb.util.SecurityUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -44,6 +84,23 @@ public class TableServiceImpl implements TableService {
     final DbMemberRepository dbMemberRepository;
     final DbUserRepository dbUserRepository;
     final UserRepository userRepository;
+    final TenantDataSourceRegistry tenantDataSourceRegistry;
+    final ObjectMapper objectMapper;
+    final RowCountCache rowCountCache;
+    final SchemaMetadataCache schemaMetadataCache;
+
+    private static final int MAX_IMPORT_WARNINGS = 50;
+    // Giới hạn placeholder của một prepared statement trong giao thức MariaDB
+    private static final int MAX_PLACEHOLDERS = 65535;
+
+    @Value("${table.write.max-rows-per-statement:1000}")
+    int maxRowsPerStatement;
+
+    @Value("${table.write.delete-chunk-size:1000}")
+    int deleteChunkSize;
+
+    @Value("${table.export.fetch-size:1000}")
+    int exportFetchSize;
 
     @Autowired
     @Qualifier("secondaryJdbcTemplate")
@@ -58,10 +115,11 @@ public class TableServiceImpl implements TableService {
         checkPermission(dbId, currentUser, DbRole.READWRITE);
         Db db =getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
-        JdbcTemplate jdbcTemplate = createJdbcTemplate(db, dbUser);
+        JdbcTemplate jdbcTemplate = getJdbcTemplate(db, dbUser);
         String sql = buildCreateTableSql(dto);
 
         jdbcTemplate.execute(sql);
+        schemaMetadataCache.invalidate(dbId, dto.getTableName());
     }
 
     @Override
@@ -74,11 +132,15 @@ public class TableServiceImpl implements TableService {
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
 
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
         List<String> statements = buildAlterTableSql(tableName, request);
 
-        for (String sql : statements) {
-            template.execute(sql);
+        try {
+            for (String sql : statements) {
+                template.execute(sql);
+            }
+        } finally {
+            schemaMetadataCache.invalidate(dbId, tableName);
         }
     }
 
@@ -91,8 +153,12 @@ public class TableServiceImpl implements TableService {
 
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
         template.execute(String.format("RENAME TABLE `%s` TO `%s`", oldName, newName));
+        rowCountCache.invalidate(dbId, oldName);
+        rowCountCache.invalidate(dbId, newName);
+        schemaMetadataCache.invalidate(dbId, oldName);
+        schemaMetadataCache.invalidate(dbId, newName);
     }
 
     @Override
@@ -104,8 +170,10 @@ public class TableServiceImpl implements TableService {
 
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
         template.execute(String.format("DROP TABLE IF EXISTS `%s`", tableName));
+        rowCountCache.invalidate(dbId, tableName);
+        schemaMetadataCache.invalidate(dbId, tableName);
     }
 
     @Override
@@ -116,51 +184,36 @@ public class TableServiceImpl implements TableService {
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
 
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
-        List<String> tableNames = template.queryForList("SHOW TABLES", String.class);
-
-        List<TableDataDTO> tableData = new ArrayList<>();
-
-        for (String tableName : tableNames) {
-            try {
-                // Lấy thông tin chi tiết từ information_schema
-                String sql = """
-                    SELECT 
-                        TABLE_NAME as name,
-                        TABLE_ROWS as totalRows,
-                        ENGINE as engine,
-                        TABLE_COLLATION as collation
-                    FROM information_schema.TABLES
-                    WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?
-                    """;
-
-                Map<String, Object> tableInfo = template.queryForMap(sql, db.getName(), tableName);
-
-                // Đếm số columns
-                String countColumnsSql = String.format("SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = '%s' AND TABLE_NAME = '%s'",
-                        db.getName(), tableName);
-                Long totalColumns = template.queryForObject(countColumnsSql, Long.class);
-
-                // Build DTO
-                TableDataDTO dto = TableDataDTO.builder()
-                        .name((String) tableInfo.get("name"))
-                        .totalColumns(totalColumns)
-                        .build();
-
-                tableData.add(dto);
-
-            } catch (Exception e) {
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
 
-                // Fallback: chỉ trả về tên bảng
-                tableData.add(TableDataDTO.builder()
-                        .name(tableName)
-                        .totalColumns(0L)
-                        .totalRows(0L)
-                        .build());
-            }
-        }
-
-        return tableData;
+        // Lấy thông tin tất cả các bảng trong 1 query thay vì 2 query cho mỗi bảng
+        String sql = """
+                SELECT
+                    t.TABLE_NAME AS name,
+                    t.TABLE_ROWS AS totalRows,
+                    t.DATA_LENGTH AS dataLength,
+                    t.INDEX_LENGTH AS indexLength,
+                    t.ENGINE AS engine,
+                    t.TABLE_COLLATION AS collation,
+                    COUNT(c.COLUMN_NAME) AS totalColumns
+                FROM information_schema.TABLES t
+                LEFT JOIN information_schema.COLUMNS c
+                    ON c.TABLE_SCHEMA = t.TABLE_SCHEMA AND c.TABLE_NAME = t.TABLE_NAME
+                WHERE t.TABLE_SCHEMA = ?
+                GROUP BY t.TABLE_NAME, t.TABLE_ROWS, t.DATA_LENGTH, t.INDEX_LENGTH, t.ENGINE, t.TABLE_COLLATION
+                ORDER BY t.TABLE_NAME
+                """;
+
+        return template.query(sql, (rs, rowNum) -> TableDataDTO.builder()
+                .name(rs.getString("name"))
+                .totalRows(rs.getLong("totalRows"))
+                .rowsEstimated(true)
+                .dataLength(rs.getLong("dataLength"))
+                .indexLength(rs.getLong("indexLength"))
+                .engine(rs.getString("engine"))
+                .collation(rs.getString("collation"))
+                .totalColumns(rs.getLong("totalColumns"))
+                .build(), db.getName());
     }
 
     @Override
@@ -171,43 +224,32 @@ public class TableServiceImpl implements TableService {
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
 
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
-
-        Map<String, Object> result = new HashMap<>();
-
-        String descSql = String.format("DESCRIBE `%s`", tableName);
-        result.put("columns", template.queryForList(descSql));
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
 
-        String indexSql = String.format("SHOW INDEX FROM `%s`", tableName);
-        result.put("indexes", template.queryForList(indexSql));
+        TableMetadata metadata = getMetadata(template, db, tableName);
 
-        String createSql = String.format("SHOW CREATE TABLE `%s`", tableName);
-        result.put("createStatement", template.queryForMap(createSql).get("Create Table"));
+        Map<String, Object> result = new HashMap<>();
+        result.put("columns", metadata.columns());
+        result.put("indexes", metadata.indexes());
+        result.put("createStatement", metadata.createStatement());
 
         return result;
     }
 
     @Override
-    public TableDataDTO getTableData(Long dbId, String tableName, int page, int pageSize) {
+    public TableDataDTO getTableData(Long dbId, String tableName, int page, int pageSize, RowCountStrategy countStrategy) {
         User currentUser = getCurrentUser();
         checkPermission(dbId, currentUser, DbRole.READONLY);
 
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
 
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
 
         // Lấy tổng số rows
-        String countSql = String.format("SELECT COUNT(*) FROM `%s`", tableName);
-        Long totalRows = template.queryForObject(countSql, Long.class);
+        RowCount rowCount = countRows(template, db, tableName, countStrategy);
 
-        // Lấy tên columns
-        String descSql = String.format("DESCRIBE `%s`", tableName);
-        List<Map<String, Object>> columnInfo = template.queryForList(descSql);
-        List<String> columns = new ArrayList<>();
-        for (Map<String, Object> col : columnInfo) {
-            columns.add((String) col.get("Field"));
-        }
+        List<String> columns = getColumnNames(getMetadata(template, db, tableName));
 
         // Lấy data với phân trang
         int offset = page * pageSize;
@@ -219,22 +261,96 @@ public class TableServiceImpl implements TableService {
                 .name(tableName)
                 .columns(columns)
                 .rows(rows)
-                .totalRows(totalRows != null ? totalRows : 0)
+                .totalRows(rowCount.value())
+                .rowsEstimated(rowCount.estimated())
                 .page(page)
                 .pageSize(pageSize)
                 .build();
     }
 
+    @Override
+    public TableDataDTO getTableDataByCursor(Long dbId, String tableName, String cursor, int pageSize, boolean descending,
+                                             RowCountStrategy countStrategy) {
+        User currentUser = getCurrentUser();
+        checkPermission(dbId, currentUser, DbRole.READONLY);
+
+        Db db = getDb(dbId);
+        DbUser dbUser = getDbUser(currentUser.getId(), dbId);
+
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
+
+        TableMetadata metadata = getMetadata(template, db, tableName);
+        List<String> columns = getColumnNames(metadata);
+        List<String> keyColumns = findKeyColumns(metadata);
+        Map<String, Object> token = decodeCursor(cursor);
+
+        // Chỉ đếm ở trang đầu, các trang sau client giữ lại tổng số
+        RowCount rowCount = cursor == null ? countRows(template, db, tableName, countStrategy) : null;
+
+        List<Map<String, Object>> rows;
+        Map<String, Object> nextToken = null;
+
+        if (keyColumns.isEmpty()) {
+            // Bảng không có khóa -> quay về phân trang OFFSET, offset được giữ trong cursor
+            long offset = token.get("o") instanceof Number n ? n.longValue() : 0L;
+            String dataSql = String.format("SELECT * FROM `%s` LIMIT %d OFFSET %d",
+                    tableName, pageSize + 1, offset);
+            rows = template.queryForList(dataSql);
+            if (rows.size() > pageSize) {
+                rows = rows.subList(0, pageSize);
+                nextToken = Map.of("o", offset + pageSize);
+            }
+        } else {
+            StringBuilder dataSql = new StringBuilder("SELECT * FROM `").append(tableName).append("`");
+            List<Object> args = new ArrayList<>();
+
+            if (token.get("k") instanceof List<?> lastKey) {
+                if (lastKey.size() != keyColumns.size()) {
+                    throw new BadRequestException("Cursor không hợp lệ");
+                }
+                dataSql.append(" WHERE ").append(buildSeekCondition(keyColumns, lastKey, descending, args));
+            }
+
+            String direction = descending ? " DESC" : " ASC";
+            dataSql.append(" ORDER BY ").append(keyColumns.stream()
+                    .map(col -> "`" + col + "`" + direction)
+                    .collect(Collectors.joining(", ")));
+            dataSql.append(" LIMIT ").append(pageSize + 1);
+
+            rows = template.queryForList(dataSql.toString(), args.toArray());
+            if (rows.size() > pageSize) {
+                rows = rows.subList(0, pageSize);
+                Map<String, Object> lastRow = rows.get(rows.size() - 1);
+                List<Object> lastKey = new ArrayList<>();
+                for (String col : keyColumns) {
+                    lastKey.add(encodeKeyValue(lastRow.get(col)));
+                }
+                nextToken = Map.of("k", lastKey);
+            }
+        }
+
+        return TableDataDTO.builder()
+                .name(tableName)
+                .columns(columns)
+                .rows(rows)
+                .totalRows(rowCount != null ? rowCount.value() : null)
+                .rowsEstimated(rowCount != null ? rowCount.estimated() : null)
+                .pageSize(pageSize)
+                .nextCursor(nextToken != null ? encodeCursor(nextToken) : null)
+                .hasMore(nextToken != null)
+                .build();
+    }
+
     @Override
     @Transactional
     @AuditLog(action = "INSERT_ROW", description = "thêm dòng")
-    public void insertRow(Long dbId, String tableName, RowDTO request) {
+    public RowWriteResultDTO insertRow(Long dbId, String tableName, RowDTO request) {
         User currentUser = getCurrentUser();
         checkPermission(dbId, currentUser, DbRole.READWRITE);
 
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
 
         List<Map<String, Object>> data = request.getData();
 
@@ -242,37 +358,47 @@ public class TableServiceImpl implements TableService {
             throw new BadRequestException("Danh sách data không được rỗng");
         }
 
-        Map<String, Object> firstRow = data.get(0);
-        String columns = firstRow.keySet().stream()
-                .map(col -> "`" + col + "`")
-                .collect(Collectors.joining(", "));
+        // Hợp các cột của mọi dòng, dòng nào thiếu cột thì dùng DEFAULT
+        Set<String> columnSet = new LinkedHashSet<>();
+        data.forEach(row -> columnSet.addAll(row.keySet()));
+        if (columnSet.isEmpty()) {
+            throw new BadRequestException("Dữ liệu không có cột nào");
+        }
+        List<String> columns = new ArrayList<>(columnSet);
 
-        String placeholders = firstRow.keySet().stream()
-                .map(col -> "?")
-                .collect(Collectors.joining(", "));
+        String prefix = String.format("INSERT INTO `%s` (%s) VALUES ", tableName, columns.stream()
+                .map(col -> "`" + col + "`")
+                .collect(Collectors.joining(", ")));
 
-        String sql = String.format("INSERT INTO `%s` (%s) VALUES (%s)",
-                tableName, columns, placeholders);
+        List<SqlChunk> chunks = buildInsertChunks(prefix, columns, data, getPacketBudget(template));
 
-        List<Object[]> batchArgs = data.stream()
-                .map(row -> row.values().toArray())
-                .collect(Collectors.toList());
+        List<Integer> chunkCounts = getTransactionTemplate(db, dbUser).execute(status -> {
+            List<Integer> counts = new ArrayList<>();
+            for (SqlChunk chunk : chunks) {
+                counts.add(template.update(chunk.sql(), chunk.args().toArray()));
+            }
+            return counts;
+        });
 
-        template.batchUpdate(sql, batchArgs);
+        rowCountCache.invalidate(dbId, tableName);
+        return RowWriteResultDTO.builder()
+                .affectedRows(chunkCounts.stream().mapToLong(Integer::longValue).sum())
+                .chunkAffectedRows(chunkCounts)
+                .build();
     }
 
     @Override
     @Transactional
     @AuditLog(action = "UPDATE_ROW", description = "chỉnh sửa dòng")
-    public void updateRow(Long dbId, String tableName, RowDTO request) {
+    public RowWriteResultDTO updateRow(Long dbId, String tableName, RowDTO request) {
         User currentUser = getCurrentUser();
         checkPermission(dbId, currentUser, DbRole.READWRITE);
 
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
 
-        List<Long> ids = request.getIds();
+        List<Object> ids = request.getIds();
         List<Map<String, Object>> data = request.getData();
 
         if (ids == null || ids.isEmpty()) {
@@ -285,67 +411,241 @@ public class TableServiceImpl implements TableService {
             throw new BadRequestException("Số lượng IDs và data phải bằng nhau");
         }
 
-        int updatedCount = 0;
+        String keyColumn = resolveKeyColumn(template, db, tableName, request.getKeyColumn());
 
+        // Gom các dòng có cùng tập cột SET vào một prepared statement, chạy theo JDBC batch
+        Map<List<String>, List<Integer>> groups = new LinkedHashMap<>();
         for (int i = 0; i < ids.size(); i++) {
-            Long id = ids.get(i);
             Map<String, Object> rowData = data.get(i);
-
-            if (rowData.isEmpty()) {
+            if (rowData == null || rowData.isEmpty()) {
                 continue;
             }
+            groups.computeIfAbsent(new ArrayList<>(new TreeSet<>(rowData.keySet())), k -> new ArrayList<>()).add(i);
+        }
 
-            String setClause = rowData.keySet().stream()
-                    .map(col -> "`" + col + "` = ?")
-                    .collect(Collectors.joining(", "));
-
-            String sql = String.format("UPDATE `%s` SET %s WHERE `id` = ?",
-                    tableName, setClause);
-
-            List<Object> values = new ArrayList<>(rowData.values());
-            values.add(id);
-
-            int affected = template.update(sql, values.toArray());
+        int[] rowCounts = new int[ids.size()];
+        List<Integer> chunkCounts = getTransactionTemplate(db, dbUser).execute(status -> {
+            List<Integer> counts = new ArrayList<>();
+            for (Map.Entry<List<String>, List<Integer>> group : groups.entrySet()) {
+                List<String> setColumns = group.getKey();
+                String sql = String.format("UPDATE `%s` SET %s WHERE `%s` = ?", tableName, setColumns.stream()
+                        .map(col -> "`" + col + "` = ?")
+                        .collect(Collectors.joining(", ")), keyColumn);
+
+                List<Integer> rowIndexes = group.getValue();
+                for (int from = 0; from < rowIndexes.size(); from += maxRowsPerStatement) {
+                    List<Integer> batchIndexes = rowIndexes.subList(from, Math.min(from + maxRowsPerStatement, rowIndexes.size()));
+                    List<Object[]> batchArgs = new ArrayList<>(batchIndexes.size());
+                    for (int index : batchIndexes) {
+                        Map<String, Object> rowData = data.get(index);
+                        Object[] args = new Object[setColumns.size() + 1];
+                        for (int c = 0; c < setColumns.size(); c++) {
+                            args[c] = rowData.get(setColumns.get(c));
+                        }
+                        args[setColumns.size()] = ids.get(index);
+                        batchArgs.add(args);
+                    }
 
-            if (affected == 0) {
-            } else {
-                updatedCount++;
+                    int[] affected = template.batchUpdate(sql, batchArgs);
+                    int batchTotal = 0;
+                    for (int b = 0; b < affected.length; b++) {
+                        // Driver có thể trả SUCCESS_NO_INFO (-2) khi không biết số dòng của từng lệnh
+                        rowCounts[batchIndexes.get(b)] = affected[b];
+                        batchTotal += Math.max(affected[b], 0);
+                    }
+                    counts.add(batchTotal);
+                }
             }
-        }
+            return counts;
+        });
+
+        return RowWriteResultDTO.builder()
+                .affectedRows(chunkCounts.stream().mapToLong(Integer::longValue).sum())
+                .chunkAffectedRows(chunkCounts)
+                .rowAffectedRows(Arrays.stream(rowCounts).boxed().toList())
+                .build();
     }
 
     @Override
     @Transactional
     @AuditLog(action = "DELETE_ROW", description = "xóa dòng")
-    public void deleteRow(Long dbId, String tableName, RowDTO request) {
+    public RowWriteResultDTO deleteRow(Long dbId, String tableName, RowDTO request) {
         User currentUser = getCurrentUser();
         checkPermission(dbId, currentUser, DbRole.READWRITE);
 
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
 
-        List<Long> ids = request.getIds();
+        List<Object> ids = request.getIds();
 
         if (ids == null || ids.isEmpty()) {
             throw new BadRequestException("Danh sách IDs không được rỗng");
         }
 
-        // DELETE FROM table WHERE id IN (?, ?, ?)
-        String placeholders = ids.stream()
-                .map(id -> "?")
-                .collect(Collectors.joining(", "));
+        String keyColumn = resolveKeyColumn(template, db, tableName, request.getKeyColumn());
+        boolean atomic = request.getAtomic() == null || request.getAtomic();
+        int totalChunks = (ids.size() + deleteChunkSize - 1) / deleteChunkSize;
+
+        // Chia nhỏ IN (...) để không vượt giới hạn placeholder và không giữ lock quá lâu
+        RuntimeException[] failure = new RuntimeException[1];
+        Function<TransactionStatus, List<Integer>> deleteChunks = status -> {
+            List<Integer> counts = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += deleteChunkSize) {
+                List<Object> chunk = ids.subList(from, Math.min(from + deleteChunkSize, ids.size()));
+                String sql = String.format("DELETE FROM `%s` WHERE `%s` IN (%s)", tableName, keyColumn,
+                        chunk.stream().map(id -> "?").collect(Collectors.joining(", ")));
+                if (atomic) {
+                    counts.add(template.update(sql, chunk.toArray()));
+                } else {
+                    // Mỗi chunk commit riêng; lỗi thì dừng và trả về số dòng của các chunk đã commit
+                    try {
+                        counts.add(getTransactionTemplate(db, dbUser).execute(s -> template.update(sql, chunk.toArray())));
+                    } catch (RuntimeException e) {
+                        if (counts.isEmpty()) {
+                            throw e;
+                        }
+                        log.warn("Xóa dòng bảng {}.{}: chunk {}/{} lỗi: {}", db.getName(), tableName,
+                                counts.size() + 1, totalChunks, e.getMessage());
+                        failure[0] = e;
+                        return counts;
+                    }
+                }
+                if (totalChunks > 1) {
+                    log.info("Xóa dòng bảng {}.{}: chunk {}/{}, {} dòng", db.getName(), tableName,
+                            counts.size(), totalChunks, counts.get(counts.size() - 1));
+                }
+            }
+            return counts;
+        };
+
+        List<Integer> chunkCounts;
+        try {
+            chunkCounts = atomic
+                    ? getTransactionTemplate(db, dbUser).execute(deleteChunks::apply)
+                    : deleteChunks.apply(null);
+        } finally {
+            rowCountCache.invalidate(dbId, tableName);
+        }
 
-        String sql = String.format("DELETE FROM `%s` WHERE `id` IN (%s)",
-                tableName, placeholders);
+        long rowsAffected = chunkCounts.stream().mapToLong(Integer::longValue).sum();
+        if (failure[0] != null) {
+            return RowWriteResultDTO.builder()
+                    .affectedRows(rowsAffected)
+                    .chunkAffectedRows(chunkCounts)
+                    .failedChunk(chunkCounts.size())
+                    .error(failure[0].getMessage())
+                    .build();
+        }
+        if (rowsAffected == 0) {
+            throw new ResourceNotFoundException("Không tìm thấy row nào với IDs đã cho");
+        }
+        return RowWriteResultDTO.builder()
+                .affectedRows(rowsAffected)
+                .chunkAffectedRows(chunkCounts)
+                .build();
+    }
 
-        Object[] values = ids.toArray();
+    @Override
+    public StreamingResponseBody exportTable(Long dbId, String tableName, String format, boolean gzip) {
+        User currentUser = getCurrentUser();
+        checkPermission(dbId, currentUser, DbRole.READONLY);
 
-        int rowsAffected = template.update(sql, values);
+        if (!"csv".equalsIgnoreCase(format) && !"ndjson".equalsIgnoreCase(format)) {
+            throw new BadRequestException("Định dạng export không hợp lệ: " + format);
+        }
 
-        if (rowsAffected == 0) {
-            throw new ResourceNotFoundException("Không tìm thấy row nào với IDs đã cho");
+        Db db = getDb(dbId);
+        DbUser dbUser = getDbUser(currentUser.getId(), dbId);
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
+
+        // Kiểm tra trước khi trả response, vì lỗi xảy ra khi đang stream thì không đổi được status nữa
+        Integer exists = template.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?",
+                Integer.class, db.getName(), tableName);
+        if (exists == null || exists == 0) {
+            throw new ResourceNotFoundException("Bảng không tồn tại");
         }
+
+        boolean csv = "csv".equalsIgnoreCase(format);
+        String sql = String.format("SELECT * FROM `%s`", tableName);
+
+        return outputStream -> template.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // fetchSize > 0: driver MariaDB đọc từng lô thay vì nạp toàn bộ result set vào heap
+                statement.setFetchSize(exportFetchSize);
+                try (ResultSet rs = statement.executeQuery(sql)) {
+                    OutputStream out = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+                    if (csv) {
+                        writeCsv(rs, out);
+                    } else {
+                        writeNdjson(rs, out);
+                    }
+                    if (out instanceof GZIPOutputStream gzipStream) {
+                        gzipStream.finish();
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Export thất bại: " + e.getMessage(), e);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    @Transactional
+    @AuditLog(action = "BULK_IMPORT", description = "import dữ liệu vào bảng")
+    public BulkImportDTO bulkImport(Long dbId, String tableName, BulkImportRequest options, InputStream data) {
+        User currentUser = getCurrentUser();
+        checkPermission(dbId, currentUser, DbRole.READWRITE);
+
+        Db db = getDb(dbId);
+        DbUser dbUser = getDbUser(currentUser.getId(), dbId);
+        JdbcTemplate template = tenantDataSourceRegistry.getJdbcTemplate(db, dbUser,
+                TenantDataSourceRegistry.ConnectionProfile.LOCAL_INFILE);
+
+        String sql = buildLoadDataSql(tableName, options);
+        CountingInputStream counted = new CountingInputStream(data);
+
+        BulkImportDTO result = template.execute((ConnectionCallback<BulkImportDTO>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                // Driver đọc thẳng từ stream upload khi server yêu cầu file, không cần file tạm
+                statement.unwrap(org.mariadb.jdbc.Statement.class).setLocalInfileInputStream(counted);
+
+                long start = System.nanoTime();
+                long imported = statement.executeLargeUpdate(sql);
+                long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+                long warningCount = 0;
+                List<String> warnings = new ArrayList<>();
+                try (ResultSet rs = statement.executeQuery("SHOW COUNT(*) WARNINGS")) {
+                    if (rs.next()) {
+                        warningCount = rs.getLong(1);
+                    }
+                }
+                if (warningCount > 0) {
+                    try (ResultSet rs = statement.executeQuery("SHOW WARNINGS LIMIT " + MAX_IMPORT_WARNINGS)) {
+                        while (rs.next()) {
+                            warnings.add(rs.getString("Level") + " " + rs.getInt("Code") + ": " + rs.getString("Message"));
+                        }
+                    }
+                }
+
+                return BulkImportDTO.builder()
+                        .tableName(tableName)
+                        .rowsImported(imported)
+                        .bytesRead(counted.count)
+                        .elapsedMs(elapsedMs)
+                        .rowsPerSecond(imported * 1000.0 / elapsedMs)
+                        .warningCount(warningCount)
+                        .warnings(warnings)
+                        .build();
+            }
+        });
+
+        rowCountCache.invalidate(dbId, tableName);
+        return result;
     }
 
     @Override
@@ -355,22 +655,15 @@ public class TableServiceImpl implements TableService {
 
         Db db = getDb(dbId);
         DbUser dbUser = getDbUser(currentUser.getId(), dbId);
-        JdbcTemplate template = createJdbcTemplate(db, dbUser);
+        JdbcTemplate template = getJdbcTemplate(db, dbUser);
 
-        String sql = """
-        SELECT 
-            COLUMN_NAME,
-            COLUMN_TYPE
-        FROM information_schema.COLUMNS
-        WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?
-        ORDER BY ORDINAL_POSITION
-        """;
-        List<Map<String,Object>> columns = template.queryForList(sql, db.getName(), tableName);
+        // DESCRIBE trả về Field/Type giống COLUMN_NAME/COLUMN_TYPE của information_schema
+        List<Map<String,Object>> columns = getMetadata(template, db, tableName).columns();
         return columns.stream()
                 .map(col -> {
                     Map<String, String> result = new HashMap<>();
-                    result.put("name", (String) col.get("COLUMN_NAME"));
-                    result.put("type", (String) col.get("COLUMN_TYPE"));
+                    result.put("name", (String) col.get("Field"));
+                    result.put("type", (String) col.get("Type"));
                     return result;
                 })
                 .collect(Collectors.toList());
@@ -410,17 +703,418 @@ public class TableServiceImpl implements TableService {
                 .orElseThrow(() -> new UnauthorizedException("Không tìm thấy credentials"));
     }
 
-    private JdbcTemplate createJdbcTemplate(Db db, DbUser dbUser) {
-        String url = String.format("jdbc:mariadb://%s:%d/%s",
-                db.getHostname(), db.getPort(), db.getName());
+    private JdbcTemplate getJdbcTemplate(Db db, DbUser dbUser) {
+        return tenantDataSourceRegistry.getJdbcTemplate(db, dbUser);
+    }
 
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("org.mariadb.jdbc.Driver");
-        dataSource.setUrl(url);
-        dataSource.setUsername(dbUser.getUsername());
-        dataSource.setPassword(dbUser.getPassword());
+    private String buildLoadDataSql(String tableName, BulkImportRequest options) {
+        String delimiter = options.getDelimiter();
+        if (delimiter == null || delimiter.isEmpty()) {
+            delimiter = "tsv".equalsIgnoreCase(options.getFormat()) ? "\t" : ",";
+        } else if ("\\t".equals(delimiter)) {
+            delimiter = "\t";
+        }
+        if (delimiter.length() != 1) {
+            throw new BadRequestException("Ký tự phân cách phải là 1 ký tự");
+        }
+        String enclosedBy = options.getEnclosedBy() != null ? options.getEnclosedBy() : "";
+        if (enclosedBy.length() > 1) {
+            throw new BadRequestException("Ký tự bao giá trị phải là 1 ký tự");
+        }
 
-        return new JdbcTemplate(dataSource);
+        StringBuilder sql = new StringBuilder("LOAD DATA LOCAL INFILE 'upload'");
+        if (options.isIgnoreErrors()) {
+            sql.append(" IGNORE");
+        }
+        sql.append(" INTO TABLE `").append(tableName.replace("`", "``")).append("`");
+        sql.append(" CHARACTER SET utf8mb4");
+        sql.append(" FIELDS TERMINATED BY '").append(escapeSqlLiteral(delimiter)).append("'");
+        if (!enclosedBy.isEmpty()) {
+            sql.append(" OPTIONALLY ENCLOSED BY '").append(escapeSqlLiteral(enclosedBy)).append("'");
+        }
+        sql.append(" LINES TERMINATED BY '").append(options.isCrlf() ? "\\r\\n" : "\\n").append("'");
+        if (options.isSkipHeader()) {
+            sql.append(" IGNORE 1 LINES");
+        }
+
+        List<String> columns = options.getColumns();
+        if (columns != null && !columns.isEmpty()) {
+            int skipped = 0;
+            List<String> targets = new ArrayList<>();
+            for (String col : columns) {
+                if (col == null || col.isBlank() || "-".equals(col.trim())) {
+                    // Cột trong file không map vào bảng -> đọc vào biến bỏ đi
+                    targets.add("@skip" + skipped++);
+                } else {
+                    targets.add("`" + col.trim().replace("`", "``") + "`");
+                }
+            }
+            sql.append(" (").append(String.join(", ", targets)).append(")");
+        }
+        return sql.toString();
+    }
+
+    private String escapeSqlLiteral(String value) {
+        return switch (value) {
+            case "\t" -> "\\t";
+            case "\\" -> "\\\\";
+            case "'" -> "\\'";
+            default -> value;
+        };
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    private void writeCsv(ResultSet rs, OutputStream out) throws SQLException, IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                writer.write(',');
+            }
+            writeCsvValue(writer, meta.getColumnLabel(i));
+        }
+        writer.write("\r\n");
+
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = rs.getObject(i);
+                if (value != null) {
+                    writeCsvValue(writer, value instanceof byte[] bytes
+                            ? Base64.getEncoder().encodeToString(bytes)
+                            : value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    private void writeCsvValue(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private void writeNdjson(ResultSet rs, OutputStream out) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        String[] labels = new String[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            labels[i - 1] = meta.getColumnLabel(i);
+        }
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            while (rs.next()) {
+                generator.writeStartObject();
+                for (int i = 1; i <= columnCount; i++) {
+                    Object value = rs.getObject(i);
+                    generator.writeFieldName(labels[i - 1]);
+                    if (value instanceof Date || value instanceof TemporalAccessor) {
+                        generator.writeString(value.toString());
+                    } else {
+                        generator.writeObject(value);
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private record SqlChunk(String sql, List<Object> args) {
+    }
+
+    /**
+     * Gom các dòng thành INSERT nhiều VALUES (...),(...), mỗi chunk không vượt quá
+     * số placeholder tối đa, số dòng tối đa và ngân sách byte theo max_allowed_packet.
+     */
+    private List<SqlChunk> buildInsertChunks(String prefix, List<String> columns,
+                                             List<Map<String, Object>> data, long packetBudget) {
+        List<SqlChunk> chunks = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(prefix);
+        List<Object> args = new ArrayList<>();
+        long bytes = prefix.length();
+        int rows = 0;
+
+        for (Map<String, Object> row : data) {
+            StringBuilder tuple = new StringBuilder("(");
+            List<Object> rowArgs = new ArrayList<>();
+            long rowBytes = 0;
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    tuple.append(", ");
+                }
+                String col = columns.get(i);
+                if (row.containsKey(col)) {
+                    Object value = row.get(col);
+                    tuple.append('?');
+                    rowArgs.add(value);
+                    rowBytes += estimateParamBytes(value);
+                } else {
+                    tuple.append("DEFAULT");
+                }
+            }
+            tuple.append(')');
+            rowBytes += tuple.length() + 1;
+
+            boolean full = rows >= maxRowsPerStatement
+                    || args.size() + rowArgs.size() > MAX_PLACEHOLDERS
+                    || bytes + rowBytes > packetBudget;
+            if (rows > 0 && full) {
+                chunks.add(new SqlChunk(sql.toString(), args));
+                sql = new StringBuilder(prefix);
+                args = new ArrayList<>();
+                bytes = prefix.length();
+                rows = 0;
+            }
+
+            if (rows > 0) {
+                sql.append(',');
+            }
+            sql.append(tuple);
+            args.addAll(rowArgs);
+            bytes += rowBytes;
+            rows++;
+        }
+        chunks.add(new SqlChunk(sql.toString(), args));
+        return chunks;
+    }
+
+    private long estimateParamBytes(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean) {
+            return 24;
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.length * 2L + 8;
+        }
+        // Ước lượng rộng: UTF-8 tối đa 3 byte/char (BMP) cộng ký tự escape
+        return value.toString().length() * 3L + 8;
+    }
+
+    private long getPacketBudget(JdbcTemplate template) {
+        Long maxPacket = template.queryForObject("SELECT @@max_allowed_packet", Long.class);
+        // Chừa lại 1/4 cho header và sai số ước lượng
+        return maxPacket != null ? maxPacket * 3 / 4 : 4L * 1024 * 1024;
+    }
+
+    private TransactionTemplate getTransactionTemplate(Db db, DbUser dbUser) {
+        return tenantDataSourceRegistry.getTransactionTemplate(db, dbUser,
+                TenantDataSourceRegistry.ConnectionProfile.DEFAULT);
+    }
+
+    private record RowCount(long value, boolean estimated) {
+    }
+
+    private RowCount countRows(JdbcTemplate template, Db db, String tableName, RowCountStrategy strategy) {
+        switch (strategy) {
+            case ESTIMATE: {
+                // TABLE_ROWS của InnoDB chỉ là ước lượng, nhưng không phải quét bảng
+                List<Long> estimate = template.queryForList(
+                        "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?",
+                        Long.class, db.getName(), tableName);
+                if (estimate.isEmpty()) {
+                    throw new ResourceNotFoundException("Bảng không tồn tại");
+                }
+                return new RowCount(estimate.get(0) != null ? estimate.get(0) : 0L, true);
+            }
+            case CACHED: {
+                Long cached = rowCountCache.get(db.getId(), tableName);
+                if (cached != null) {
+                    // Giá trị trong cache có thể đã cũ tới TTL
+                    return new RowCount(cached, true);
+                }
+                long count = exactCount(template, tableName);
+                rowCountCache.put(db.getId(), tableName, count);
+                return new RowCount(count, false);
+            }
+            default:
+                return new RowCount(exactCount(template, tableName), false);
+        }
+    }
+
+    private long exactCount(JdbcTemplate template, String tableName) {
+        Long count = template.queryForObject(String.format("SELECT COUNT(*) FROM `%s`", tableName), Long.class);
+        return count != null ? count : 0L;
+    }
+
+    private TableMetadata getMetadata(JdbcTemplate template, Db db, String tableName) {
+        return schemaMetadataCache.get(db.getId(), tableName, () -> new TableMetadata(
+                List.copyOf(template.queryForList(String.format("DESCRIBE `%s`", tableName))),
+                List.copyOf(template.queryForList(String.format("SHOW INDEX FROM `%s`", tableName))),
+                (String) template.queryForMap(String.format("SHOW CREATE TABLE `%s`", tableName)).get("Create Table")));
+    }
+
+    private List<String> getColumnNames(TableMetadata metadata) {
+        List<String> columns = new ArrayList<>();
+        for (Map<String, Object> col : metadata.columns()) {
+            columns.add((String) col.get("Field"));
+        }
+        return columns;
+    }
+
+    /**
+     * Tìm các cột khóa để phân trang theo keyset: ưu tiên PRIMARY KEY,
+     * sau đó tới unique index đầu tiên mà mọi cột đều NOT NULL.
+     * Trả về list rỗng nếu bảng không có khóa phù hợp.
+     */
+    private List<String> findKeyColumns(TableMetadata metadata) {
+        Map<String, List<String>> uniqueIndexes = new LinkedHashMap<>();
+        Set<String> nullableIndexes = new HashSet<>();
+        for (Map<String, Object> row : metadata.indexes()) {
+            if (((Number) row.get("Non_unique")).intValue() != 0) {
+                continue;
+            }
+            String keyName = (String) row.get("Key_name");
+            uniqueIndexes.computeIfAbsent(keyName, k -> new ArrayList<>()).add((String) row.get("Column_name"));
+            if ("YES".equalsIgnoreCase((String) row.get("Null"))) {
+                nullableIndexes.add(keyName);
+            }
+        }
+
+        if (uniqueIndexes.containsKey("PRIMARY")) {
+            return uniqueIndexes.get("PRIMARY");
+        }
+        return uniqueIndexes.entrySet().stream()
+                .filter(entry -> !nullableIndexes.contains(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(List.of());
+    }
+
+    /**
+     * Cột dùng để xác định dòng cho update/delete theo ids: cột được chỉ định trong request,
+     * nếu không có thì là khóa chính một cột của bảng, rồi tới cột `id` như trước,
+     * cuối cùng là unique index một cột NOT NULL.
+     */
+    private String resolveKeyColumn(JdbcTemplate template, Db db, String tableName, String requested) {
+        TableMetadata metadata = getMetadata(template, db, tableName);
+        List<String> columns = getColumnNames(metadata);
+        if (requested != null && !requested.isBlank()) {
+            if (!columns.contains(requested)) {
+                throw new BadRequestException("Cột " + requested + " không tồn tại");
+            }
+            return requested.replace("`", "``");
+        }
+        List<String> keyColumns = findKeyColumns(metadata);
+        boolean primary = metadata.indexes().stream().anyMatch(row -> "PRIMARY".equals(row.get("Key_name")));
+        if (primary && keyColumns.size() == 1) {
+            return keyColumns.get(0);
+        }
+        if (columns.contains("id")) {
+            return "id";
+        }
+        if (keyColumns.size() == 1) {
+            return keyColumns.get(0);
+        }
+        throw new BadRequestException(keyColumns.isEmpty()
+                ? "Bảng không có khóa để xác định dòng, hãy chỉ định keyColumn"
+                : "Bảng có khóa chính nhiều cột, hãy chỉ định keyColumn");
+    }
+
+    /**
+     * (k1 > ?) OR (k1 = ? AND k2 > ?) OR ... - dạng mở rộng của (k1, k2, ...) > (?, ?, ...)
+     * để MariaDB dùng được range scan trên index.
+     */
+    private String buildSeekCondition(List<String> keyColumns, List<?> lastKey, boolean descending, List<Object> args) {
+        String op = descending ? " < ?" : " > ?";
+        List<String> disjuncts = new ArrayList<>();
+        for (int i = 0; i < keyColumns.size(); i++) {
+            List<String> conjuncts = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                conjuncts.add("`" + keyColumns.get(j) + "` = ?");
+                args.add(decodeKeyValue(lastKey.get(j)));
+            }
+            conjuncts.add("`" + keyColumns.get(i) + "`" + op);
+            args.add(decodeKeyValue(lastKey.get(i)));
+            disjuncts.add("(" + String.join(" AND ", conjuncts) + ")");
+        }
+        return "(" + String.join(" OR ", disjuncts) + ")";
+    }
+
+    private Object encodeKeyValue(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof byte[] bytes) {
+            return Map.of("b64", Base64.getEncoder().encodeToString(bytes));
+        }
+        return value.toString();
+    }
+
+    private Object decodeKeyValue(Object value) {
+        if (value instanceof Map<?, ?> map && map.get("b64") instanceof String b64) {
+            return Base64.getDecoder().decode(b64);
+        }
+        return value;
+    }
+
+    private String encodeCursor(Map<String, Object> token) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(token));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Không thể tạo cursor: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Map.of();
+        }
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            return objectMapper.readerFor(new TypeReference<Map<String, Object>>() {})
+                    .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                    .readValue(json);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
     }
 
     private String buildCreateTableSql(TableCreateRequest request) {
@@ -0,0 +1,285 @@
+package com.cloud_computing.mariadb.service.impl;
+
+import com.cloud_computing.mariadb.entity.Db;
+import com.cloud_computing.mariadb.entity.DbUser;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Giữ connection pool (Hikari) cho từng cặp (Db, DbUser) của tenant.
+ * Pool được dùng lại giữa các request, bị đóng khi idle quá TTL
+ * hoặc khi cần chỗ cho pool mới (LRU) để tổng số connection không vượt giới hạn.
+ */
+@Slf4j
+@Component
+public class TenantDataSourceRegistry {
+
+    /**
+     * Các kiểu kết nối tới tenant, mỗi kiểu là một pool riêng vì khác tham số URL.
+     */
+    public enum ConnectionProfile {
+        DEFAULT(""),
+        MULTI_QUERIES("allowMultiQueries=true"),
+        LOCAL_INFILE("allowLocalInfile=true");
+
+        final String urlOptions;
+
+        ConnectionProfile(String urlOptions) {
+            this.urlOptions = urlOptions;
+        }
+    }
+
+    record PoolKey(Long dbId, String username, ConnectionProfile profile) {
+    }
+
+    static final class TenantPool {
+        final HikariDataSource dataSource;
+        final JdbcTemplate jdbcTemplate;
+        final TransactionTemplate transactionTemplate;
+        final String password;
+        volatile long lastAccess;
+
+        TenantPool(HikariDataSource dataSource, String password) {
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            this.password = password;
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        int maxSize() {
+            return dataSource.getMaximumPoolSize();
+        }
+
+        boolean isBusy() {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool != null && (pool.getActiveConnections() > 0 || pool.getThreadsAwaitingConnection() > 0);
+        }
+    }
+
+    // accessOrder = true: phần tử đầu tiên luôn là pool ít được dùng gần đây nhất
+    final LinkedHashMap<PoolKey, TenantPool> pools = new LinkedHashMap<>(16, 0.75f, true);
+    int totalConnections = 0;
+
+    @Value("${tenant.datasource.pool-size:3}")
+    int poolSize;
+
+    @Value("${tenant.datasource.max-total-connections:60}")
+    int maxTotalConnections;
+
+    @Value("${tenant.datasource.idle-ttl-ms:300000}")
+    long idleTtlMs;
+
+    @Value("${tenant.datasource.connection-timeout-ms:10000}")
+    long connectionTimeoutMs;
+
+    public JdbcTemplate getJdbcTemplate(Db db, DbUser dbUser) {
+        return getPool(db, dbUser, ConnectionProfile.DEFAULT).jdbcTemplate;
+    }
+
+    public JdbcTemplate getJdbcTemplate(Db db, DbUser dbUser, ConnectionProfile profile) {
+        return getPool(db, dbUser, profile).jdbcTemplate;
+    }
+
+    /**
+     * Transaction trên pool của tenant; JdbcTemplate cùng profile sẽ tham gia vào transaction này.
+     */
+    public TransactionTemplate getTransactionTemplate(Db db, DbUser dbUser, ConnectionProfile profile) {
+        return getPool(db, dbUser, profile).transactionTemplate;
+    }
+
+    /**
+     * Chạy callback trên một connection của pool rồi loại bỏ connection đó thay vì trả lại pool.
+     * Dùng cho thao tác đổi biến session (restore, import dump) để không ảnh hưởng request khác.
+     */
+    public <T> T executeIsolated(Db db, DbUser dbUser, ConnectionProfile profile, ConnectionCallback<T> action) {
+        HikariDataSource dataSource = getPool(db, dbUser, profile).dataSource;
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            return action.doInConnection(connection);
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException(e.getMessage(), e);
+        } finally {
+            if (connection != null) {
+                dataSource.evictConnection(connection);
+            }
+        }
+    }
+
+    /**
+     * Số connection tối đa của một pool, giới hạn số việc chạy song song trên cùng (Db, DbUser, profile).
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public DataSource getDataSource(Db db, DbUser dbUser, ConnectionProfile profile) {
+        return getPool(db, dbUser, profile).dataSource;
+    }
+
+    /**
+     * Đóng toàn bộ pool của một database (khi database bị xóa hoặc restore).
+     */
+    public void evictDb(Long dbId) {
+        List<TenantPool> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<PoolKey, TenantPool>> it = pools.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<PoolKey, TenantPool> entry = it.next();
+                if (entry.getKey().dbId().equals(dbId)) {
+                    removed.add(entry.getValue());
+                    totalConnections -= entry.getValue().maxSize();
+                    it.remove();
+                }
+            }
+        }
+        removed.forEach(this::closePool);
+    }
+
+    /**
+     * Đóng pool của một user trên database (khi member bị xóa hoặc đổi quyền).
+     */
+    public void evictUser(Long dbId, String username) {
+        List<TenantPool> removed = new ArrayList<>();
+        synchronized (this) {
+            for (ConnectionProfile profile : ConnectionProfile.values()) {
+                TenantPool pool = pools.remove(new PoolKey(dbId, username, profile));
+                if (pool != null) {
+                    removed.add(pool);
+                    totalConnections -= pool.maxSize();
+                }
+            }
+        }
+        removed.forEach(this::closePool);
+    }
+
+    @Scheduled(fixedDelayString = "${tenant.datasource.eviction-interval-ms:60000}")
+    public void evictIdlePools() {
+        long now = System.currentTimeMillis();
+        List<TenantPool> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<TenantPool> it = pools.values().iterator();
+            while (it.hasNext()) {
+                TenantPool pool = it.next();
+                if (now - pool.lastAccess > idleTtlMs && !pool.isBusy()) {
+                    removed.add(pool);
+                    totalConnections -= pool.maxSize();
+                    it.remove();
+                }
+            }
+        }
+        removed.forEach(this::closePool);
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        List<TenantPool> removed;
+        synchronized (this) {
+            removed = new ArrayList<>(pools.values());
+            pools.clear();
+            totalConnections = 0;
+        }
+        removed.forEach(this::closePool);
+    }
+
+    private TenantPool getPool(Db db, DbUser dbUser, ConnectionProfile profile) {
+        PoolKey key = new PoolKey(db.getId(), dbUser.getUsername(), profile);
+        List<TenantPool> removed = new ArrayList<>();
+        TenantPool pool;
+        synchronized (this) {
+            pool = pools.get(key);
+            if (pool != null && !Objects.equals(pool.password, dbUser.getPassword())) {
+                // Credentials đã đổi -> bỏ pool cũ
+                pools.remove(key);
+                totalConnections -= pool.maxSize();
+                removed.add(pool);
+                pool = null;
+            }
+            if (pool == null) {
+                removed.addAll(makeRoom(poolSize));
+                pool = new TenantPool(createDataSource(db, dbUser, profile), dbUser.getPassword());
+                pools.put(key, pool);
+                totalConnections += pool.maxSize();
+            }
+            pool.lastAccess = System.currentTimeMillis();
+        }
+        removed.forEach(this::closePool);
+        return pool;
+    }
+
+    /**
+     * Bỏ các pool LRU đang rảnh cho tới khi đủ chỗ cho {@code required} connection.
+     * Phải gọi trong synchronized.
+     */
+    private List<TenantPool> makeRoom(int required) {
+        List<TenantPool> removed = new ArrayList<>();
+        Iterator<TenantPool> it = pools.values().iterator();
+        while (totalConnections + required > maxTotalConnections && it.hasNext()) {
+            TenantPool candidate = it.next();
+            if (candidate.isBusy()) {
+                continue;
+            }
+            removed.add(candidate);
+            totalConnections -= candidate.maxSize();
+            it.remove();
+        }
+        if (totalConnections + required > maxTotalConnections) {
+            // Các pool đã gỡ đều đang rảnh nên vẫn đóng luôn
+            removed.forEach(this::closePool);
+            throw new RuntimeException("Hệ thống đang quá tải kết nối, vui lòng thử lại sau.");
+        }
+        return removed;
+    }
+
+    private HikariDataSource createDataSource(Db db, DbUser dbUser, ConnectionProfile profile) {
+        String url = String.format("jdbc:mariadb://%s:%d/%s",
+                db.getHostname(), db.getPort(), db.getName());
+        if (!profile.urlOptions.isEmpty()) {
+            url += "?" + profile.urlOptions;
+        }
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(String.format("tenant-%d-%s-%s", db.getId(), dbUser.getUsername(), profile.name().toLowerCase()));
+        config.setDriverClassName("org.mariadb.jdbc.Driver");
+        config.setJdbcUrl(url);
+        config.setUsername(dbUser.getUsername());
+        config.setPassword(dbUser.getPassword());
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(0);
+        config.setIdleTimeout(Math.max(idleTtlMs, 10000));
+        config.setConnectionTimeout(connectionTimeoutMs);
+        // Không mở connection khi tạo pool, chỉ mở khi có request đầu tiên
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+
+    private void closePool(TenantPool pool) {
+        try {
+            pool.dataSource.close();
+        } catch (Exception e) {
+            log.warn("Không thể đóng pool {}: {}", pool.dataSource.getPoolName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.cloud_computing.mariadb.util;
+
+import com.cloud_computing.mariadb.entity.enums.BackupCompression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Đọc từ source, nén theo codec và trả ra dữ liệu đã nén.
+ * Mỗi lần buffer đầu ra rỗng sẽ kéo thêm một khối từ source nên bộ nhớ dùng chỉ cỡ vài khối.
+ */
+public class CompressingInputStream extends InputStream {
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    // Cho phép đọc trực tiếp mảng nội bộ thay vì toByteArray()
+    static final class Buffer extends ByteArrayOutputStream {
+        int position;
+
+        Buffer() {
+            super(CHUNK_SIZE);
+        }
+
+        int available() {
+            return count - position;
+        }
+
+        int drain(byte[] b, int off, int len) {
+            int n = Math.min(len, count - position);
+            System.arraycopy(buf, position, b, off, n);
+            position += n;
+            if (position == count) {
+                reset();
+                position = 0;
+            }
+            return n;
+        }
+    }
+
+    final InputStream source;
+    final Buffer buffer = new Buffer();
+    final OutputStream compressor;
+    final byte[] chunk = new byte[CHUNK_SIZE];
+    long uncompressedBytes;
+    boolean finished;
+
+    public CompressingInputStream(InputStream source, BackupCompression compression, int level) throws IOException {
+        this.source = source;
+        this.compressor = CompressionUtils.compress(buffer, compression, level);
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (buffer.available() == 0) {
+            if (finished) {
+                return -1;
+            }
+            fill();
+        }
+        return buffer.drain(b, off, len);
+    }
+
+    private void fill() throws IOException {
+        int n = source.read(chunk);
+        if (n < 0) {
+            // close() ghi phần đuôi (footer/frame) của codec vào buffer
+            compressor.close();
+            finished = true;
+            return;
+        }
+        uncompressedBytes += n;
+        compressor.write(chunk, 0, n);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            source.close();
+        } finally {
+            // Đóng trước EOF (lỗi, hủy job): vẫn phải giải phóng bộ nhớ native của codec
+            if (!finished) {
+                finished = true;
+                compressor.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.cloud_computing.mariadb.util;
+
+import com.cloud_computing.mariadb.entity.enums.BackupCompression;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionUtils {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    public static OutputStream compress(OutputStream out, BackupCompression compression, int level) throws IOException {
+        return switch (compression) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+            case ZSTD -> new ZstdOutputStream(out, level);
+        };
+    }
+
+    public static InputStream decompress(InputStream in, BackupCompression compression) throws IOException {
+        return switch (compression) {
+            case NONE -> in;
+            case GZIP -> new GZIPInputStream(in, BUFFER_SIZE);
+            case ZSTD -> new ZstdInputStream(in);
+        };
+    }
+}
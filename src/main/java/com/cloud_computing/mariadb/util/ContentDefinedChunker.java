@@ -0,0 +1,93 @@
+package com.cloud_computing.mariadb.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Cắt dữ liệu ghi vào thành các chunk theo nội dung (content-defined chunking) bằng gear rolling hash.
+ * Ranh giới chunk phụ thuộc vào ~64 byte cuối chứ không phụ thuộc vị trí, nên khi dữ liệu được chèn/xóa ở một chỗ
+ * chỉ các chunk quanh chỗ đó thay đổi, các chunk còn lại giống hệt lần dump trước.
+ * <p>
+ * Kích thước chunk nằm trong [min, max], trung bình khoảng {@code avgSize}. Buffer (max byte) được dùng lại,
+ * {@link ChunkSink} phải xử lý xong dữ liệu trước khi trả về.
+ */
+public class ContentDefinedChunker extends OutputStream {
+    // Bảng gear cố định: cùng dữ liệu luôn cho cùng ranh giới giữa các lần chạy
+    static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x6d61726961646243L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ChunkSink {
+        void accept(byte[] data, int length) throws IOException;
+    }
+
+    final int minSize;
+    final int maxSize;
+    // Các bit cao của hash phụ thuộc vào nhiều byte gần nhất hơn các bit thấp
+    final long mask;
+    final ChunkSink sink;
+    final byte[] buffer;
+    int length;
+    long hash;
+    boolean closed;
+
+    public ContentDefinedChunker(int minSize, int avgSize, int maxSize, ChunkSink sink) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize) {
+            throw new IllegalArgumentException("Kích thước chunk phải thỏa 0 < min <= avg <= max");
+        }
+        int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.mask = bits == 0 ? 0 : ((1L << bits) - 1) << (64 - bits);
+        this.sink = sink;
+        this.buffer = new byte[maxSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Chunker đã đóng");
+        }
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            byte value = b[i];
+            buffer[length++] = value;
+            hash = (hash << 1) + GEAR[value & 0xff];
+            if (length >= maxSize || (length >= minSize && (hash & mask) == 0)) {
+                emit();
+            }
+        }
+    }
+
+    /**
+     * Gửi phần còn lại làm chunk cuối.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (length > 0) {
+            emit();
+        }
+    }
+
+    private void emit() throws IOException {
+        sink.accept(buffer, length);
+        length = 0;
+        hash = 0;
+    }
+}
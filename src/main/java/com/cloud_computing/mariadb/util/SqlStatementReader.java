@@ -0,0 +1,432 @@
+package com.cloud_computing.mariadb.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Tách file SQL (mysqldump, mariadb-dump, file người dùng upload) thành từng câu lệnh trong một lượt đọc.
+ * Đọc theo buffer char[] cố định, không tạo String cho từng dòng; phần văn bản được giữ nguyên
+ * chỉ được chép vào câu lệnh theo từng đoạn (khi gặp comment, delimiter hoặc khi buffer được nạp lại).
+ * <ul>
+ *     <li>Chuỗi '...', "..." (escape bằng \ hoặc nhân đôi dấu nháy), định danh `...`</li>
+ *     <li>Comment {@code -- }, {@code #}, {@code /* *}{@code /} bị bỏ</li>
+ *     <li>Versioned comment {@code /*!50003 ... *}{@code /}, {@code /*M!100101 ... *}{@code /} giữ nguyên
+ *     để server tự quyết định theo version</li>
+ *     <li>Lệnh client {@code DELIMITER xx} đổi dấu kết thúc câu lệnh, không được trả về;
+ *     {@code /*!\C charset *}{@code /} (output của mysqlbinlog) bị bỏ</li>
+ * </ul>
+ */
+public class SqlStatementReader {
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final String DELIMITER_COMMAND = "DELIMITER";
+    static final boolean[] SPECIAL = new boolean[128];
+
+    static {
+        for (char c : "'\"`#-/*".toCharArray()) {
+            SPECIAL[c] = true;
+        }
+    }
+
+    final Reader reader;
+    final char[] buf = new char[BUFFER_SIZE];
+    int pos;
+    int limit;
+    boolean eof;
+    // buf[pending, pos) thuộc câu lệnh nhưng chưa chép vào statement; -1 khi đang bỏ qua ký tự
+    int pending = -1;
+
+    // Câu lệnh đang ghép; giữ char[] riêng thay cho StringBuilder vì append(char[]) của StringBuilder
+    // chép từng ký tự một, còn new String(char[]) nén cả đoạn một lần
+    char[] statement = new char[1024];
+    int length;
+    String delimiter = ";";
+    // Đang ở trong bao nhiêu versioned comment, "*/" tương ứng được giữ lại trong câu lệnh
+    int versionedDepth;
+
+    public SqlStatementReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Trả về câu lệnh tiếp theo (không có delimiter), hoặc null khi hết file.
+     */
+    public String next() throws IOException {
+        length = 0;
+        versionedDepth = 0;
+        boolean atStart = true;
+        pending = pos;
+
+        while (ensure(1)) {
+            char c = buf[pos];
+
+            if (atStart) {
+                if (Character.isWhitespace(c)) {
+                    pending = ++pos;
+                    continue;
+                }
+                if ((c == 'D' || c == 'd') && matchesKeyword(DELIMITER_COMMAND)) {
+                    readDelimiterCommand();
+                    continue;
+                }
+            }
+
+            // Kiểm tra delimiter trước comment: mysqlbinlog dùng "DELIMITER /*!*/;"
+            if (versionedDepth == 0 && matchesDelimiter()) {
+                String result = takeStatement();
+                pos += delimiter.length();
+                pending = pos;
+                if (result == null) {
+                    // Câu lệnh rỗng (";;" thừa)
+                    atStart = true;
+                    continue;
+                }
+                return result;
+            }
+
+            switch (c) {
+                case '\'', '"', '`' -> {
+                    int next = scanPlain(pos);
+                    if (next == pos) {
+                        // Chuỗi vắt qua cuối buffer
+                        skipQuoted(c);
+                    } else {
+                        pos = next;
+                    }
+                    atStart = false;
+                    continue;
+                }
+                case '#' -> {
+                    skipLine();
+                    continue;
+                }
+                case '-' -> {
+                    if (isLineCommentStart()) {
+                        skipLine();
+                        continue;
+                    }
+                }
+                case '/' -> {
+                    if (ensure(2) && buf[pos + 1] == '*') {
+                        if (isClientCommandComment()) {
+                            // "/*!\C utf8mb4 */" của mysqlbinlog là lệnh của client mysql, không gửi lên server
+                            skipBlockComment();
+                        } else if (isVersionedCommentStart()) {
+                            // "/*!" hoặc "/*M!": nội dung là code, giữ nguyên để server xử lý
+                            pos += buf[pos + 2] == '!' ? 3 : 4;
+                            versionedDepth++;
+                            atStart = false;
+                        } else {
+                            skipBlockComment();
+                        }
+                        continue;
+                    }
+                }
+                case '*' -> {
+                    if (versionedDepth > 0 && ensure(2) && buf[pos + 1] == '/') {
+                        // "*/" đóng versioned comment được giữ lại
+                        pos += 2;
+                        versionedDepth--;
+                        continue;
+                    }
+                }
+                default -> {
+                }
+            }
+
+            // Ký tự thường: đi tiếp tới ký tự đặc biệt tiếp theo, văn bản được chép sau theo cả đoạn
+            pos = scanPlain(pos + 1);
+            atStart = false;
+        }
+
+        // Câu lệnh cuối không có delimiter
+        return takeStatement();
+    }
+
+    /**
+     * Câu lệnh kết thúc tại pos (đã bỏ khoảng trắng cuối), hoặc null nếu rỗng. Câu lệnh nằm liền
+     * trong buffer và chưa bị cắt bởi comment (trường hợp phổ biến của INSERT trong dump) được tạo
+     * thẳng từ buffer, không qua bước chép vào statement.
+     */
+    private String takeStatement() {
+        if (length == 0 && pending >= 0) {
+            int start = pending;
+            int end = pos;
+            while (end > start && Character.isWhitespace(buf[end - 1])) {
+                end--;
+            }
+            pending = pos;
+            return end == start ? null : new String(buf, start, end - start);
+        }
+        flush();
+        while (length > 0 && Character.isWhitespace(statement[length - 1])) {
+            length--;
+        }
+        return length == 0 ? null : new String(statement, 0, length);
+    }
+
+    /**
+     * Đi qua chuỗi/định danh vắt qua cuối buffer, nội dung vẫn thuộc câu lệnh.
+     */
+    private void skipQuoted(char quote) throws IOException {
+        pos++;
+        boolean backslashEscapes = quote != '`';
+        while (ensure(1)) {
+            char[] b = buf;
+            int end = limit;
+            int i = pos;
+            while (i < end && b[i] != quote && (b[i] != '\\' || !backslashEscapes)) {
+                i++;
+            }
+            pos = i;
+            if (i == end) {
+                continue;
+            }
+            char c = buf[pos++];
+            if (c != quote) {
+                // Ký tự sau \ luôn thuộc chuỗi
+                if (ensure(1)) {
+                    pos++;
+                }
+            } else if (ensure(1) && buf[pos] == quote) {
+                // Nhân đôi dấu nháy: vẫn nằm trong chuỗi
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Vị trí của ký tự đầu tiên từ {@code from} có thể bắt đầu comment, delimiter, kết thúc versioned comment
+     * hoặc bắt đầu một chuỗi không đóng được trong buffer (hoặc {@code limit}). Chuỗi nằm trọn trong buffer
+     * được đi qua ngay tại đây, nên thân một câu INSERT thường chỉ cần một lượt quét.
+     * Vòng lặp nóng nhất, dùng biến cục bộ để JIT giữ trong register.
+     */
+    private int scanPlain(int from) {
+        char[] b = buf;
+        int end = limit;
+        char delimiterStart = delimiter.charAt(0);
+        int i = from;
+        while (i < end) {
+            char c = b[i];
+            if (c == delimiterStart) {
+                break;
+            }
+            if (c < SPECIAL.length && SPECIAL[c]) {
+                if (c != '\'' && c != '"' && c != '`') {
+                    break;
+                }
+                int close = scanQuoted(b, i + 1, end, c);
+                if (close < 0) {
+                    break;
+                }
+                i = close;
+                continue;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Vị trí ngay sau dấu nháy đóng của chuỗi bắt đầu trước {@code from}, hoặc -1 nếu chưa xác định được
+     * trong buffer (chuỗi, escape hay dấu nháy nhân đôi vắt qua {@code end}).
+     */
+    private static int scanQuoted(char[] b, int from, int end, char quote) {
+        boolean backslashEscapes = quote != '`';
+        int i = from;
+        while (i < end) {
+            char c = b[i];
+            if (c == quote) {
+                if (i + 1 >= end) {
+                    return -1;
+                }
+                if (b[i + 1] != quote) {
+                    return i + 1;
+                }
+                i += 2;
+            } else if (c == '\\' && backslashEscapes) {
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * "--" chỉ là comment khi theo sau là khoảng trắng/ký tự điều khiển hoặc hết file.
+     */
+    private boolean isLineCommentStart() throws IOException {
+        if (!ensure(2) || buf[pos + 1] != '-') {
+            return false;
+        }
+        return !ensure(3) || buf[pos + 2] <= ' ';
+    }
+
+    private boolean isVersionedCommentStart() throws IOException {
+        if (ensure(3) && buf[pos + 2] == '!') {
+            return true;
+        }
+        return ensure(4) && buf[pos + 2] == 'M' && buf[pos + 3] == '!';
+    }
+
+    private boolean isClientCommandComment() throws IOException {
+        return ensure(4) && buf[pos + 2] == '!' && buf[pos + 3] == '\\';
+    }
+
+    private void skipLine() throws IOException {
+        flush();
+        pending = -1;
+        while (ensure(1)) {
+            if (buf[pos++] == '\n') {
+                break;
+            }
+        }
+        separateTokens();
+        pending = pos;
+    }
+
+    private void skipBlockComment() throws IOException {
+        flush();
+        pending = -1;
+        pos += 2;
+        while (ensure(2)) {
+            if (buf[pos] == '*' && buf[pos + 1] == '/') {
+                pos += 2;
+                separateTokens();
+                pending = pos;
+                return;
+            }
+            pos++;
+        }
+        // Comment không đóng: bỏ tới hết file
+        pos = limit;
+        pending = pos;
+    }
+
+    /**
+     * Comment nằm giữa câu lệnh được thay bằng một khoảng trắng để không dính hai token.
+     */
+    private void separateTokens() {
+        if (length > 0 && statement[length - 1] != ' ') {
+            append(' ');
+        }
+    }
+
+    private boolean matchesDelimiter() throws IOException {
+        int length = delimiter.length();
+        if (buf[pos] != delimiter.charAt(0)) {
+            return false;
+        }
+        if (length == 1) {
+            return true;
+        }
+        if (!ensure(length)) {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            if (buf[pos + i] != delimiter.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesKeyword(String keyword) throws IOException {
+        int length = keyword.length();
+        if (!ensure(length + 1)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toUpperCase(buf[pos + i]) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        char next = buf[pos + length];
+        return next == ' ' || next == '\t';
+    }
+
+    /**
+     * "DELIMITER $$": delimiter mới là từ đầu tiên sau từ khóa, phần còn lại của dòng bị bỏ.
+     */
+    private void readDelimiterCommand() throws IOException {
+        pending = -1;
+        pos += DELIMITER_COMMAND.length();
+        while (ensure(1) && (buf[pos] == ' ' || buf[pos] == '\t')) {
+            pos++;
+        }
+        StringBuilder value = new StringBuilder(4);
+        while (ensure(1) && !Character.isWhitespace(buf[pos])) {
+            value.append(buf[pos++]);
+        }
+        skipLine();
+        length = 0;
+        if (!value.isEmpty()) {
+            delimiter = value.toString();
+        }
+    }
+
+    /**
+     * Chép phần văn bản đang chờ vào statement.
+     */
+    private void flush() {
+        int n = pos - pending;
+        if (pending >= 0 && n > 0) {
+            reserve(n);
+            System.arraycopy(buf, pending, statement, length, n);
+            length += n;
+        }
+        pending = pos;
+    }
+
+    private void append(char c) {
+        reserve(1);
+        statement[length++] = c;
+    }
+
+    private void reserve(int n) {
+        if (length + n > statement.length) {
+            statement = Arrays.copyOf(statement, Math.max(statement.length * 2, length + n));
+        }
+    }
+
+    /**
+     * Đảm bảo buffer còn ít nhất {@code n} ký tự chưa đọc, trả về false nếu file không còn đủ.
+     */
+    private boolean ensure(int n) throws IOException {
+        if (limit - pos >= n) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        if (pos > 0) {
+            // Phần chờ nằm trước pos sẽ bị ghi đè khi dồn buffer
+            boolean collecting = pending >= 0;
+            if (collecting) {
+                flush();
+            }
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+            if (collecting) {
+                pending = 0;
+            }
+        }
+        while (limit - pos < n) {
+            int read = reader.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                eof = true;
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+package com.cloud_computing.mariadb.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh {@link SqlStatementReader} với vòng lặp đọc theo dòng cũ của SqlScriptExecutor
+ * trên một file giống output của mysqldump.
+ * <p>
+ * Chạy: {@code mvn test-compile} rồi
+ * {@code java -cp target/test-classes:target/classes:<classpath test> com.cloud_computing.mariadb.util.SqlStatementReaderBenchmark}
+ * (classpath lấy bằng {@code mvn dependency:build-classpath -Dmdep.includeScope=test}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlStatementReaderBenchmark {
+    // Số dòng INSERT (mỗi dòng nhiều tuple) trong file giả lập
+    @Param({"20000"})
+    int statements;
+
+    byte[] dump;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder sql = new StringBuilder();
+        sql.append("/*!40101 SET @OLD_CHARACTER_SET_CLIENT=@@CHARACTER_SET_CLIENT */;\n")
+                .append("/*!40101 SET NAMES utf8mb4 */;\n")
+                .append("-- Table structure for table `orders`\n")
+                .append("DROP TABLE IF EXISTS `orders`;\n")
+                .append("CREATE TABLE `orders` (\n  `id` bigint NOT NULL,\n  `note` varchar(255),\n")
+                .append("  `amount` decimal(10,2),\n  PRIMARY KEY (`id`)\n) ENGINE=InnoDB;\n");
+        long id = 0;
+        for (int i = 0; i < statements; i++) {
+            sql.append("INSERT INTO `orders` VALUES ");
+            for (int row = 0; row < 20; row++) {
+                if (row > 0) {
+                    sql.append(',');
+                }
+                sql.append('(').append(++id).append(",'note ").append(random.nextInt(100000))
+                        .append("; it\\'s ''quoted''',").append(random.nextInt(100000)).append(".50)");
+            }
+            sql.append(";\n");
+        }
+        sql.append("/*!40101 SET CHARACTER_SET_CLIENT=@OLD_CHARACTER_SET_CLIENT */;\n");
+        dump = sql.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) throws IOException {
+        SqlStatementReader reader = new SqlStatementReader(
+                new InputStreamReader(new ByteArrayInputStream(dump), StandardCharsets.UTF_8));
+        String sql;
+        while ((sql = reader.next()) != null) {
+            blackhole.consume(sql);
+        }
+    }
+
+    /**
+     * Vòng lặp cũ: readLine, trim, regex cho versioned comment, ghép dòng tới khi gặp ';' cuối dòng.
+     */
+    @Benchmark
+    public void lineLoop(Blackhole blackhole) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(dump), StandardCharsets.UTF_8));
+        StringBuilder sqlBuilder = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("--")) {
+                continue;
+            }
+            if (line.startsWith("/*!")) {
+                String processed = line.replaceAll("/\\*!\\d+\\s*", "").replaceAll("\\s*\\*/;?$", ";");
+                if (processed.trim().isEmpty() || processed.trim().equals(";")) {
+                    continue;
+                }
+                line = processed;
+            }
+            sqlBuilder.append(line).append(" ");
+            if (line.endsWith(";")) {
+                blackhole.consume(sqlBuilder.toString().trim());
+                sqlBuilder.setLength(0);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SqlStatementReaderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
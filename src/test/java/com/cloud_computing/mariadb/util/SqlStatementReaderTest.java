@@ -0,0 +1,176 @@
+package com.cloud_computing.mariadb.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlStatementReaderTest {
+
+    @Test
+    void splitsOnSemicolon() throws IOException {
+        assertStatements("SELECT 1;\nSELECT 2;\n", "SELECT 1", "SELECT 2");
+    }
+
+    @Test
+    void ignoresEmptyStatements() throws IOException {
+        assertStatements(";;\n SELECT 1;;; \n", "SELECT 1");
+    }
+
+    @Test
+    void keepsSemicolonInsideSingleQuotesWithEscapes() throws IOException {
+        assertStatements("INSERT INTO t VALUES ('a;b', 'it\\'s;', 'x''y;', '\\\\');SELECT 2;",
+                "INSERT INTO t VALUES ('a;b', 'it\\'s;', 'x''y;', '\\\\')", "SELECT 2");
+    }
+
+    @Test
+    void keepsSemicolonInsideDoubleQuotesWithEscapes() throws IOException {
+        assertStatements("SELECT \"a;\\\"b\", \"c\"\";\";SELECT 2;",
+                "SELECT \"a;\\\"b\", \"c\"\";\"", "SELECT 2");
+    }
+
+    @Test
+    void keepsSemicolonInsideBackticks() throws IOException {
+        // Trong backtick, \ không phải escape, chỉ nhân đôi ` mới escape
+        assertStatements("SELECT `a;b`, `c\\` FROM `t``;`;SELECT 2;",
+                "SELECT `a;b`, `c\\` FROM `t``;`", "SELECT 2");
+    }
+
+    @Test
+    void skipsDoubleDashCommentFollowedByWhitespace() throws IOException {
+        assertStatements("-- header;\nSELECT 1; -- trailing;\n--\ttab;\nSELECT 2;",
+                "SELECT 1", "SELECT 2");
+    }
+
+    @Test
+    void keepsDoubleDashWithoutWhitespace() throws IOException {
+        // "5--1" là phép trừ số âm, không phải comment
+        assertStatements("SELECT 5--1;", "SELECT 5--1");
+    }
+
+    @Test
+    void skipsDoubleDashAtEndOfFile() throws IOException {
+        assertStatements("SELECT 1;\n--", "SELECT 1");
+    }
+
+    @Test
+    void skipsHashComment() throws IOException {
+        assertStatements("# header;\nSELECT 1 # comment;\n+ 1;", "SELECT 1 + 1");
+    }
+
+    @Test
+    void replacesBlockCommentWithSpace() throws IOException {
+        assertStatements("/* header; */SELECT/* ; */1;", "SELECT 1");
+    }
+
+    @Test
+    void keepsVersionedComments() throws IOException {
+        assertStatements("/*!40101 SET NAMES utf8mb4 */;\n/*M!100101 SET @x = 1 */;\n/*!50003 SELECT 1; */;",
+                "/*!40101 SET NAMES utf8mb4 */", "/*M!100101 SET @x = 1 */", "/*!50003 SELECT 1; */");
+    }
+
+    @Test
+    void changesDelimiter() throws IOException {
+        assertStatements("DELIMITER ;;\nCREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END ;;\nDELIMITER ;\nSELECT 3;",
+                "CREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END", "SELECT 3");
+    }
+
+    @Test
+    void delimiterKeywordIsCaseInsensitive() throws IOException {
+        assertStatements("delimiter $$\nSELECT 1; SELECT 2$$\ndelimiter ;\nSELECT 3;",
+                "SELECT 1; SELECT 2", "SELECT 3");
+    }
+
+    @Test
+    void handlesMysqlbinlogDelimiter() throws IOException {
+        String script = """
+                DELIMITER /*!*/;
+                # at 4
+                SET TIMESTAMP=1700000000/*!*/;
+                BEGIN
+                /*!*/;
+                INSERT INTO t VALUES (1)
+                /*!*/;
+                COMMIT/*!*/;
+                DELIMITER ;
+                # End of log file
+                """;
+        assertStatements(script, "SET TIMESTAMP=1700000000", "BEGIN", "INSERT INTO t VALUES (1)", "COMMIT");
+    }
+
+    @Test
+    void dropsClientCharsetCommand() throws IOException {
+        assertStatements("DELIMITER /*!*/;\n/*!\\C utf8mb4 *//*!*/;\nSET NAMES utf8mb4/*!*/;\n",
+                "SET NAMES utf8mb4");
+    }
+
+    @Test
+    void handlesCrlfLineEndings() throws IOException {
+        assertStatements("-- header\r\nSELECT 1;\r\nDELIMITER $$\r\nSELECT\r\n2$$\r\nDELIMITER ;\r\n# c\r\nSELECT 3;\r\n",
+                "SELECT 1", "SELECT\r\n2", "SELECT 3");
+    }
+
+    @Test
+    void returnsLastStatementWithoutDelimiter() throws IOException {
+        assertStatements("SELECT 1;\nSELECT 2\n\n", "SELECT 1", "SELECT 2");
+    }
+
+    @Test
+    void returnsNothingForBlankInput() throws IOException {
+        assertStatements(" \n\t-- only comment\n");
+    }
+
+    @Test
+    void handlesStatementsLargerThanBuffer() throws IOException {
+        String value = "x".repeat(SqlStatementReader.BUFFER_SIZE * 2 + 17);
+        assertStatements("SELECT '" + value + "';SELECT 2;", "SELECT '" + value + "'", "SELECT 2");
+    }
+
+    /**
+     * Chạy cả với reader trả từng ký tự một để kiểm tra các token nằm vắt qua ranh giới buffer.
+     */
+    private static void assertStatements(String script, String... expected) throws IOException {
+        assertEquals(List.of(expected), readAll(new StringReader(script)));
+        assertEquals(List.of(expected), readAll(new OneCharReader(script)));
+    }
+
+    private static List<String> readAll(Reader input) throws IOException {
+        SqlStatementReader reader = new SqlStatementReader(input);
+        List<String> statements = new ArrayList<>();
+        String sql;
+        while ((sql = reader.next()) != null) {
+            statements.add(sql);
+        }
+        return statements;
+    }
+
+    private static final class OneCharReader extends Reader {
+        final String text;
+        int position;
+
+        OneCharReader(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (position >= text.length()) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            cbuf[off] = text.charAt(position++);
+            return 1;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}